@@ -0,0 +1,106 @@
+package clases;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.awt.Rectangle;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Compara la fase amplia con UniformGrid frente al doble bucle original (Rectangle por pareja)
+// para un numero creciente de entidades repartidas por el campo de 500x700, y lo que anade la fase
+// fina con mascaras de pixeles (HitMasks) sobre la rejilla. Cada operacion es una pasada completa.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class CollisionBenchmark {
+    private static final int SIZE = GameEngine.ENEMY_SIZE;
+    private static final int PROJECTILE = GameEngine.PROJECTILE_SIZE;
+
+    @Param({"50", "100", "500", "1000", "5000", "10000"})
+    public int entities;
+
+    private int projectileCount;
+    private int targetCount;
+    private int[] px, py, tx, ty;
+    private final UniformGrid grid = new UniformGrid(GameEngine.GAME_WIDTH, GameEngine.GAME_HEIGHT, GameEngine.GRID_CELL_SIZE);
+    private HitMasks masks;
+
+    @Setup(Level.Trial)
+    public void buildScene() {
+        Random random = new Random(42);
+        projectileCount = entities / 2;
+        targetCount = entities - projectileCount;
+        px = new int[projectileCount];
+        py = new int[projectileCount];
+        tx = new int[targetCount];
+        ty = new int[targetCount];
+        for (int i = 0; i < projectileCount; i++) {
+            px[i] = random.nextInt(GameEngine.GAME_WIDTH - PROJECTILE);
+            py[i] = random.nextInt(GameEngine.GAME_HEIGHT - PROJECTILE);
+        }
+        for (int i = 0; i < targetCount; i++) {
+            tx[i] = random.nextInt(GameEngine.GAME_WIDTH - SIZE);
+            ty[i] = random.nextInt(GameEngine.GAME_HEIGHT - SIZE);
+        }
+        masks = AssetManager.loadHitMasks();
+    }
+
+    @Benchmark
+    public void brute(Blackhole blackhole) {
+        int hits = 0;
+        for (int p = 0; p < projectileCount; p++) {
+            Rectangle projectile = new Rectangle(px[p], py[p], PROJECTILE, PROJECTILE);
+            for (int t = 0; t < targetCount; t++) {
+                if (projectile.intersects(new Rectangle(tx[t], ty[t], SIZE, SIZE))) {
+                    hits++;
+                    break;
+                }
+            }
+        }
+        blackhole.consume(hits);
+    }
+
+    @Benchmark
+    public void grid(Blackhole blackhole) {
+        blackhole.consume(gridPass(false));
+    }
+
+    // Como en GameEngine: cada candidato de la rejilla se confirma con las mascaras
+    @Benchmark
+    public void gridWithMasks(Blackhole blackhole) {
+        blackhole.consume(gridPass(true));
+    }
+
+    private int gridPass(boolean useMasks) {
+        grid.clear();
+        for (int t = targetCount - 1; t >= 0; t--) {
+            grid.insert(t, tx[t], ty[t], SIZE, SIZE);
+        }
+        int hits = 0;
+        for (int p = 0; p < projectileCount; p++) {
+            int hit = grid.firstOverlap(px[p], py[p], PROJECTILE, PROJECTILE);
+            while (useMasks && hit != -1 && !masks.bullet.overlaps(px[p], py[p], masks.enemy, tx[hit], ty[hit])) {
+                hit = grid.nextOverlap(px[p], py[p], PROJECTILE, PROJECTILE, hit);
+            }
+            if (hit != -1) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+}
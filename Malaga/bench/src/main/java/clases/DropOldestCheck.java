@@ -0,0 +1,85 @@
+package clases;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+
+// Comprueba que ProjectilePool con DROP_OLDEST descarta siempre el proyectil mas antiguo vivo,
+// mezclando disparos con bajas en posiciones al azar, frente a un modelo con una cola en orden
+// de creacion. Tambien que descartar no depende de la capacidad: un pool lleno de 65536 no puede
+// tardar por disparo muchas veces mas que uno de 1024, como pasaria con una busqueda lineal.
+// Uso: java clases.DropOldestCheck (sale con error si algo no cuadra)
+public class DropOldestCheck {
+    private static final int OPERATIONS = 200_000;
+
+    public static void main(String[] args) {
+        Random random = new Random(5);
+        for (int capacity : new int[]{1, 2, 8, 64}) {
+            checkOrder(capacity, random);
+        }
+        double small = nanosPerFullSpawn(1024);
+        double large = nanosPerFullSpawn(65536);
+        System.out.printf("DropOldestCheck: orden OK; disparo con el pool lleno %.0f ns (1024) / %.0f ns (65536)%n",
+                small, large);
+        if (large > 16 * small) {
+            throw new IllegalStateException("Descartar el mas antiguo crece con la capacidad");
+        }
+    }
+
+    // y guarda el numero de disparo: identifica cada proyectil aunque cambie de indice.
+    private static void checkOrder(int capacity, Random random) {
+        ProjectilePool pool = new ProjectilePool(1, capacity, ProjectilePool.OverflowPolicy.DROP_OLDEST);
+        ArrayDeque<Integer> model = new ArrayDeque<>();
+        int serial = 0;
+        for (int op = 0; op < OPERATIONS; op++) {
+            if (pool.size() > 0 && random.nextInt(3) == 0) {
+                int i = random.nextInt(pool.size());
+                if (!model.remove(pool.y[i])) {
+                    throw new IllegalStateException("El pool tiene un proyectil que no existe: " + pool.y[i]);
+                }
+                pool.remove(i);
+            } else {
+                if (model.size() == capacity) {
+                    model.removeFirst();
+                }
+                pool.spawn(0, serial, 1, 1);
+                model.addLast(serial++);
+            }
+            if (pool.size() != model.size()) {
+                throw new IllegalStateException("Capacidad " + capacity + ": " + pool.size() + " vivos, esperados " + model.size());
+            }
+        }
+        // Los vivos tienen que ser justo los del modelo, que estan en orden de disparo
+        int[] alive = new int[pool.size()];
+        for (int i = 0; i < pool.size(); i++) {
+            alive[i] = pool.y[i];
+        }
+        Arrays.sort(alive);
+        Iterator<Integer> expected = model.iterator();
+        for (int value : alive) {
+            if (value != expected.next()) {
+                throw new IllegalStateException("Capacidad " + capacity + ": sobrevive " + value + " en vez del mas reciente");
+            }
+        }
+        if (pool.getDropped() == 0) {
+            throw new IllegalStateException("Capacidad " + capacity + ": no se ha descartado ningun proyectil");
+        }
+    }
+
+    private static double nanosPerFullSpawn(int capacity) {
+        ProjectilePool pool = new ProjectilePool(capacity, capacity, ProjectilePool.OverflowPolicy.DROP_OLDEST);
+        for (int i = 0; i < capacity; i++) {
+            pool.spawn(0, i, 1, 1);
+        }
+        double best = Double.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < OPERATIONS; i++) {
+                pool.spawn(0, i, 1, 1);
+            }
+            best = Math.min(best, (System.nanoTime() - start) / (double) OPERATIONS);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,92 @@
+package clases;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Un tick completo del motor con unas N entidades del tipo que ejercita cada escenario. La escena
+// se guarda con saveState y se restaura cada SEGMENT_TICKS ticks fuera de la medida, para que la
+// carga no se vacie al salir las entidades de la pantalla.
+// Percentiles con -bm sample; bytes reservados por tick con -prof gc (gc.alloc.rate.norm).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class EngineBenchmark {
+    static final int SEGMENT_TICKS = 100;
+
+    public enum Scenario {
+        UPDATE_PROJECTILES,
+        UPDATE_ENEMIES,
+        CHECK_COLLISIONS,
+        // Nivel 4: los camicases disparan laseres (shootLaser) en cada tick
+        LEVEL4_LASERS
+    }
+
+    @Param({"UPDATE_PROJECTILES", "UPDATE_ENEMIES", "CHECK_COLLISIONS", "LEVEL4_LASERS"})
+    public Scenario scenario;
+
+    @Param({"100", "1000", "5000"})
+    public int entities;
+
+    private GameEngine engine;
+    private final StateBuffer scene = new StateBuffer();
+    private int ticks;
+
+    @Setup(Level.Trial)
+    public void buildScene() {
+        Random random = new Random(entities);
+        engine = Scenes.engine(entities, 1);
+        switch (scenario) {
+            case UPDATE_PROJECTILES:
+                Scenes.fillProjectiles(engine.getProjectiles(), entities, random);
+                Scenes.fillProjectiles(engine.getEnemyProjectiles(), entities, random);
+                break;
+            case UPDATE_ENEMIES:
+                Scenes.fillFormation(engine, entities);
+                break;
+            case CHECK_COLLISIONS:
+                Scenes.fillFormation(engine, entities / 2);
+                Scenes.fillProjectiles(engine.getProjectiles(), entities / 2, random);
+                break;
+            case LEVEL4_LASERS:
+                engine.startLevel(4);
+                Scenes.fillFormation(engine, entities / 2);
+                Scenes.fillCamicases(engine, entities / 10, random);
+                break;
+            default:
+                throw new IllegalStateException("Escenario desconocido: " + scenario);
+        }
+        Scenes.settle(engine, scenario.name());
+        engine.saveState(scene);
+    }
+
+    @Setup(Level.Invocation)
+    public void refreshScene() {
+        if (++ticks % SEGMENT_TICKS == 0 || engine.isGameOver()) {
+            engine.loadState(scene);
+        }
+    }
+
+    @Benchmark
+    public void tick(Blackhole blackhole) {
+        engine.step(GameEngine.INPUT_FIRE);
+        blackhole.consume(engine.getEnemyProjectiles().size());
+        blackhole.consume(engine.getEnemies().size());
+    }
+}
@@ -0,0 +1,193 @@
+package clases;
+
+import java.util.Random;
+
+// Compara la fase fina por pixeles con una comprobacion directa, pixel a pixel:
+//  - CollisionMask.overlaps con mascaras al azar de varias palabras por fila, vacias y llenas,
+//    en posiciones relativas al azar (tambien negativas);
+//  - las mascaras reales de HitMasks en todas las posiciones en que se tocan las cajas de cada
+//    pareja que comprueba el motor;
+//  - la busqueda de GameEngine (firstOverlap y nextOverlap mientras la mascara descarte) frente
+//    al menor id que de verdad choca, con mascaras, sin ellas y con tamanos que no les cuadran;
+//  - que una partida con mascaras que no cuadran con nada juega igual que con cajas, y que con
+//    las mascaras reales la partida cambia.
+// Uso: java clases.MaskCheck (sale con error si algo no cuadra)
+public class MaskCheck {
+    private static final int ALPHA_THRESHOLD = 128;
+    private static final int GAME_TICKS = 50_000;
+
+    public static void main(String[] args) {
+        Random random = new Random(11);
+        long randomPairs = checkRandomMasks(random);
+        HitMasks masks = AssetManager.loadHitMasks();
+        long spritePairs = checkSpriteMasks(masks);
+        long queries = checkGridSearch(masks, random);
+        checkGames(masks);
+        System.out.printf("MaskCheck: %d posiciones al azar, %d de sprites y %d busquedas en la rejilla OK%n",
+                randomPairs, spritePairs, queries);
+    }
+
+    private static long checkRandomMasks(Random random) {
+        long positions = 0;
+        for (int t = 0; t < 4000; t++) {
+            int w1 = 1 + random.nextInt(160), h1 = 1 + random.nextInt(40);
+            int w2 = 1 + random.nextInt(160), h2 = 1 + random.nextInt(40);
+            CollisionMask a = randomMask(w1, h1, random);
+            CollisionMask b = randomMask(w2, h2, random);
+            for (int k = 0; k < 25; k++) {
+                int ax = random.nextInt(300) - 150, ay = random.nextInt(80) - 40;
+                int bx = random.nextInt(300) - 150, by = random.nextInt(80) - 40;
+                compare(a, ax, ay, b, bx, by, "al azar");
+                positions++;
+            }
+        }
+        return positions;
+    }
+
+    // Densidades de vacia a llena; los pixeles por debajo del umbral tienen algo de alfa igualmente.
+    private static CollisionMask randomMask(int width, int height, Random random) {
+        int density = random.nextInt(6) == 0 ? (random.nextBoolean() ? 0 : 100) : random.nextInt(100);
+        int[] argb = new int[width * height];
+        for (int i = 0; i < argb.length; i++) {
+            int alpha = random.nextInt(100) < density ? ALPHA_THRESHOLD + random.nextInt(256 - ALPHA_THRESHOLD)
+                    : random.nextInt(ALPHA_THRESHOLD);
+            argb[i] = alpha << 24 | random.nextInt(1 << 24);
+        }
+        CollisionMask mask = CollisionMask.fromArgb(argb, width, height, ALPHA_THRESHOLD);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (mask.isOpaque(x, y) != argb[y * width + x] >>> 24 >= ALPHA_THRESHOLD) {
+                    throw new IllegalStateException("fromArgb: pixel (" + x + ", " + y + ") mal leido");
+                }
+            }
+        }
+        return mask;
+    }
+
+    // Las parejas de GameEngine; con b fijo en el origen se prueban todas las posiciones de a
+    // en que las cajas se solapan.
+    private static long checkSpriteMasks(HitMasks masks) {
+        CollisionMask[][] pairs = {
+                {masks.bullet, masks.enemy}, {masks.bullet, masks.camicase}, {masks.bullet, masks.boss},
+                {masks.enemyBullet, masks.player}, {masks.laser, masks.player},
+                {masks.camicase, masks.player}, {masks.enemy, masks.player}
+        };
+        long positions = 0;
+        for (CollisionMask[] pair : pairs) {
+            CollisionMask a = pair[0], b = pair[1];
+            if (a.opaquePixels() == 0 || a.opaquePixels() == a.width * a.height) {
+                throw new IllegalStateException("Mascara de " + a.width + "x" + a.height + " sin transparencias o vacia");
+            }
+            for (int ay = 1 - a.height; ay < b.height; ay++) {
+                for (int ax = 1 - a.width; ax < b.width; ax++) {
+                    compare(a, ax, ay, b, 0, 0, "sprites " + a.width + "x" + a.height + "/" + b.width + "x" + b.height);
+                    positions++;
+                }
+            }
+        }
+        return positions;
+    }
+
+    private static void compare(CollisionMask a, int ax, int ay, CollisionMask b, int bx, int by, String what) {
+        boolean expected = bruteOverlap(a, ax, ay, b, bx, by);
+        if (a.overlaps(ax, ay, b, bx, by) != expected || b.overlaps(bx, by, a, ax, ay) != expected) {
+            throw new IllegalStateException("overlaps " + what + ": " + a.width + "x" + a.height + " en (" + ax + ", "
+                    + ay + ") y " + b.width + "x" + b.height + " en (" + bx + ", " + by + ") deberia dar " + expected);
+        }
+    }
+
+    private static boolean bruteOverlap(CollisionMask a, int ax, int ay, CollisionMask b, int bx, int by) {
+        for (int y = 0; y < a.height; y++) {
+            for (int x = 0; x < a.width; x++) {
+                if (a.isOpaque(x, y) && b.isOpaque(x + ax - bx, y + ay - by)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Enemigos y balas del tamano de sus mascaras, algunos de otro tamano (la prueba de cajas
+    // decide) y algunos borrados de la rejilla, como al destruirlos durante el tick.
+    private static long checkGridSearch(HitMasks masks, Random random) {
+        UniformGrid grid = new UniformGrid(GameEngine.GAME_WIDTH, GameEngine.GAME_HEIGHT, GameEngine.GRID_CELL_SIZE);
+        long queries = 0;
+        for (int round = 0; round < 200; round++) {
+            int n = 1 + random.nextInt(400);
+            int[] x = new int[n], y = new int[n], w = new int[n], h = new int[n];
+            boolean[] alive = new boolean[n];
+            for (int i = 0; i < n; i++) {
+                boolean odd = random.nextInt(8) == 0;
+                w[i] = odd ? 1 + random.nextInt(60) : GameEngine.ENEMY_SIZE;
+                h[i] = odd ? 1 + random.nextInt(60) : GameEngine.ENEMY_SIZE;
+                x[i] = random.nextInt(GameEngine.GAME_WIDTH) - w[i] / 2;
+                y[i] = random.nextInt(GameEngine.GAME_HEIGHT) - h[i] / 2;
+                alive[i] = true;
+            }
+            grid.clear();
+            for (int i = n - 1; i >= 0; i--) {
+                grid.insert(i, x[i], y[i], w[i], h[i]);
+            }
+            for (int i = 0; i < n; i++) {
+                if (random.nextInt(5) == 0) {
+                    grid.remove(i);
+                    alive[i] = false;
+                }
+            }
+            for (int q = 0; q < 500; q++) {
+                boolean odd = random.nextInt(8) == 0;
+                int pw = odd ? 1 + random.nextInt(20) : GameEngine.PROJECTILE_SIZE;
+                int ph = odd ? 1 + random.nextInt(20) : GameEngine.PROJECTILE_SIZE;
+                int px = random.nextInt(GameEngine.GAME_WIDTH + 40) - 20;
+                int py = random.nextInt(GameEngine.GAME_HEIGHT + 40) - 20;
+                for (HitMasks m : new HitMasks[]{masks, null}) {
+                    int expected = -1;
+                    for (int i = 0; i < n && expected == -1; i++) {
+                        if (alive[i] && px < x[i] + w[i] && x[i] < px + pw && py < y[i] + h[i] && y[i] < py + ph
+                                && (m == null || !m.bullet.fits(pw, ph) || !m.enemy.fits(w[i], h[i])
+                                || bruteOverlap(m.bullet, px, py, m.enemy, x[i], y[i]))) {
+                            expected = i;
+                        }
+                    }
+                    // El mismo bucle que GameEngine.checkCollisions
+                    int hit = grid.firstOverlap(px, py, pw, ph);
+                    while (hit != -1 && m != null && m.bullet.fits(pw, ph) && m.enemy.fits(w[hit], h[hit])
+                            && !m.bullet.overlaps(px, py, m.enemy, x[hit], y[hit])) {
+                        hit = grid.nextOverlap(px, py, pw, ph, hit);
+                    }
+                    if (hit != expected) {
+                        throw new IllegalStateException("Rejilla " + (m == null ? "sin" : "con") + " mascaras: bala "
+                                + pw + "x" + ph + " en (" + px + ", " + py + ") choca con " + hit + ", esperado " + expected);
+                    }
+                    queries++;
+                }
+            }
+        }
+        return queries;
+    }
+
+    private static void checkGames(HitMasks masks) {
+        CollisionMask dot = CollisionMask.fromArgb(new int[]{0xFF000000}, 1, 1, ALPHA_THRESHOLD);
+        HitMasks unfit = new HitMasks(dot, dot, dot, dot, dot, dot, dot);
+        for (WavePreset preset : new WavePreset[]{WavePreset.CAMPAIGN, WavePreset.STRESS_1K}) {
+            int ticks = preset == WavePreset.CAMPAIGN ? GAME_TICKS : GAME_TICKS / 10;
+            long boxes = play(preset, null, ticks);
+            if (play(preset, unfit, ticks) != boxes) {
+                throw new IllegalStateException(preset + ": con mascaras que no cuadran no juega igual que con cajas");
+            }
+            if (play(preset, masks, ticks) == boxes) {
+                throw new IllegalStateException(preset + ": las mascaras de los sprites no cambian nada");
+            }
+        }
+    }
+
+    private static long play(WavePreset preset, HitMasks masks, int ticks) {
+        GameEngine engine = new GameEngine(3, preset);
+        engine.setHitMasks(masks);
+        GameRandom random = new GameRandom(3);
+        for (int i = 0; i < ticks; i++) {
+            engine.step(Bot.SWEEP.input(engine, random) | GameEngine.INPUT_RESET);
+        }
+        return engine.stateHash();
+    }
+}
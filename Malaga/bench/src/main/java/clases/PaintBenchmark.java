@@ -0,0 +1,61 @@
+package clases;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Un frame de GameRenderer sobre un BufferedImage (sin pantalla) con una escena fija: N/2 enemigos
+// y N/2 balas enemigas. Cada frame captura el estado del motor, como el pintado real.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class PaintBenchmark {
+    @Param({"100", "1000", "5000"})
+    public int entities;
+
+    private GameEngine engine;
+    private GameRenderer renderer;
+    private BufferedImage image;
+    private Graphics2D g;
+
+    @Setup(Level.Trial)
+    public void buildScene() {
+        renderer = new GameRenderer();
+        image = new BufferedImage(GameEngine.GAME_WIDTH, GameEngine.GAME_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        g = image.createGraphics();
+        engine = Scenes.engine(entities, 1);
+        Scenes.fillFormation(engine, entities / 2);
+        Scenes.fillProjectiles(engine.getEnemyProjectiles(), entities / 2, new Random(entities));
+        Scenes.settle(engine, "paint");
+    }
+
+    @TearDown(Level.Trial)
+    public void dispose() {
+        g.dispose();
+    }
+
+    @Benchmark
+    public void paint(Blackhole blackhole) {
+        renderer.render(g, engine, GameEngine.GAME_WIDTH, GameEngine.GAME_HEIGHT);
+        blackhole.consume(image.getRGB(GameEngine.GAME_WIDTH / 2, GameEngine.GAME_HEIGHT / 2));
+    }
+}
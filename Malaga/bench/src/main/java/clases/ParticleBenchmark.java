@@ -0,0 +1,78 @@
+package clases;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Efectos con unas N particulas vivas: update repone cada tick lo que ha caducado y avanza el
+// motor, asi que lo medido incluye lanzar los efectos; paint dibuja un frame con todas ellas.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class ParticleBenchmark {
+    @Param({"1000", "5000", "15000"})
+    public int particles;
+
+    private final Random random = new Random(7);
+    private GameEngine engine;
+    private final StateBuffer scene = new StateBuffer();
+    private int ticks;
+    private GameRenderer renderer;
+    private BufferedImage image;
+    private Graphics2D g;
+
+    @Setup(Level.Trial)
+    public void buildScene() {
+        engine = Scenes.engine(particles, 1);
+        Scenes.fillParticles(engine.getParticles(), particles, random);
+        Scenes.settle(engine, "particulas");
+        engine.saveState(scene);
+        renderer = new GameRenderer();
+        image = new BufferedImage(GameEngine.GAME_WIDTH, GameEngine.GAME_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        g = image.createGraphics();
+    }
+
+    @Setup(Level.Invocation)
+    public void refreshScene() {
+        if (++ticks % EngineBenchmark.SEGMENT_TICKS == 0 || engine.isGameOver()) {
+            engine.loadState(scene);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void dispose() {
+        g.dispose();
+    }
+
+    @Benchmark
+    public void update(Blackhole blackhole) {
+        Scenes.fillParticles(engine.getParticles(), particles, random);
+        engine.step(GameEngine.INPUT_FIRE);
+        blackhole.consume(engine.getParticles().size());
+    }
+
+    @Benchmark
+    public void paint(Blackhole blackhole) {
+        renderer.render(g, engine, GameEngine.GAME_WIDTH, GameEngine.GAME_HEIGHT);
+        blackhole.consume(image.getRGB(GameEngine.GAME_WIDTH / 2, GameEngine.GAME_HEIGHT / 2));
+    }
+}
@@ -0,0 +1,125 @@
+package clases;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Comprueba sin ventana que grabar, guardar, cargar y reproducir una partida llega al mismo
+// estado (misma huella), con cajas y con mascaras, en la campana (tambien con otro paso) y en un
+// preset de estres, y que
+// las grabaciones de otra version o los ficheros que no lo son dan error.
+// Uso: java clases.ReplayCheck (sale con error si algo no cuadra)
+public class ReplayCheck {
+    private static final int MAGIC = 0x4D4C4752; // "MLGR"
+    private static final int TICKS = 60_000;
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createTempDirectory("malaga-replay");
+        try {
+            HitMasks masks = AssetManager.loadHitMasks();
+            checkRoundTrip(dir, new GameEngine(7, WavePreset.CAMPAIGN), null, Bot.DODGE, TICKS);
+            checkRoundTrip(dir, new GameEngine(8, WavePreset.CAMPAIGN), masks, Bot.RANDOM, TICKS);
+            checkRoundTrip(dir, new GameEngine(9, WavePreset.STRESS_1K, 2048, ProjectilePool.OverflowPolicy.DROP_OLDEST),
+                    masks, Bot.SWEEP, TICKS / 20);
+            checkRoundTrip(dir, new GameEngine(10, WavePreset.CAMPAIGN, 20), masks, Bot.DODGE, TICKS / 2);
+            checkRejected(dir);
+            System.out.println("ReplayCheck: grabar, cargar y reproducir OK");
+        } finally {
+            for (File file : dir.toFile().listFiles()) {
+                file.delete();
+            }
+            Files.delete(dir);
+        }
+    }
+
+    private static void checkRoundTrip(Path dir, GameEngine engine, HitMasks masks, Bot bot, int ticks) throws IOException {
+        String name = engine.getPreset() + "/" + bot + (masks != null ? "/pixel" : "/cajas");
+        engine.setHitMasks(masks);
+        InputRecording recording = InputRecording.of(engine);
+        GameRandom random = new GameRandom(engine.getSeed());
+        for (int i = 0; i < ticks; i++) {
+            int input = bot.input(engine, random) | GameEngine.INPUT_RESET;
+            recording.record(input);
+            engine.step(input);
+        }
+        Path file = dir.resolve("partida.mlgr");
+        recording.save(file, engine.stateHash());
+
+        InputRecording loaded = InputRecording.load(file);
+        if (loaded.getSeed() != engine.getSeed() || loaded.getTicks() != ticks || loaded.getFinalHash() != engine.stateHash()) {
+            throw new IllegalStateException(name + ": la cabecera cargada no coincide con la grabada");
+        }
+        for (int i = 0; i < ticks; i++) {
+            if (loaded.inputAt(i) != recording.inputAt(i)) {
+                throw new IllegalStateException(name + ": la entrada del tick " + i + " no coincide");
+            }
+        }
+        GameEngine replayed = Replayer.replay(loaded);
+        if (replayed.getPreset() != engine.getPreset() || (replayed.getHitMasks() != null) != (masks != null)
+                || replayed.getEnemyProjectiles().getMaxCapacity() != engine.getEnemyProjectiles().getMaxCapacity()
+                || replayed.getEnemyProjectiles().getPolicy() != engine.getEnemyProjectiles().getPolicy()
+                || replayed.getTickMillis() != engine.getTickMillis()) {
+            throw new IllegalStateException(name + ": la repeticion no usa la configuracion grabada");
+        }
+        if (replayed.stateHash() != loaded.getFinalHash()) {
+            throw new IllegalStateException(String.format("%s: la repeticion acaba en %016x y se grabo %016x", name,
+                    replayed.stateHash(), loaded.getFinalHash()));
+        }
+        // La huella tiene que notar unas pocas teclas distintas; al final, porque cada reinicio
+        // tras un game over borra lo que pasara antes
+        byte[] inputs = inputs(recording);
+        for (int i = ticks - 100; i < ticks; i++) {
+            inputs[i] ^= GameEngine.INPUT_LEFT;
+        }
+        if (play(engine, masks, inputs) == loaded.getFinalHash()) {
+            throw new IllegalStateException(name + ": cambiar la entrada de un tick no cambia la huella");
+        }
+    }
+
+    // Una version anterior, una futura y un fichero que no es una grabacion tienen que dar error,
+    // no una partida.
+    private static void checkRejected(Path dir) throws IOException {
+        Path old = dir.resolve("v2.mlgr");
+        Path future = dir.resolve("v9.mlgr");
+        for (Path file : new Path[]{old, future}) {
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+                out.writeInt(MAGIC);
+                out.writeByte(file == old ? 2 : 9);
+                out.writeLong(1);
+                out.writeUTF(WavePreset.CAMPAIGN.name());
+            }
+        }
+        Path other = dir.resolve("otro.mlgr");
+        Files.write(other, new byte[]{'M', 'L', 'G', 'S', 0, 0, 0, 0});
+        for (Path file : new Path[]{old, future, other}) {
+            try {
+                InputRecording.load(file);
+                throw new IllegalStateException(file.getFileName() + " se carga como grabacion");
+            } catch (IOException expected) {
+                // es lo que tiene que pasar
+            }
+        }
+    }
+
+    private static byte[] inputs(InputRecording recording) {
+        byte[] inputs = new byte[recording.getTicks()];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = (byte) recording.inputAt(i);
+        }
+        return inputs;
+    }
+
+    // Otra partida con la configuracion de original.
+    private static long play(GameEngine original, HitMasks masks, byte[] inputs) {
+        ProjectilePool pool = original.getEnemyProjectiles();
+        GameEngine engine = new GameEngine(original.getSeed(), original.getPreset(), pool.getMaxCapacity(),
+                pool.getPolicy(), original.getTickMillis());
+        engine.setHitMasks(masks);
+        for (byte input : inputs) {
+            engine.step(input);
+        }
+        return engine.stateHash();
+    }
+}
@@ -0,0 +1,71 @@
+package clases;
+
+import java.util.Random;
+
+// Escenas de carga para los benchmarks: unas n entidades del tipo que interesa en cada caso,
+// colocadas fuera de la columna del jugador para que la partida no termine mientras se mide.
+final class Scenes {
+    private static final int FORMATION_COLUMNS = 40;
+    private static final int FORMATION_SPACING = 8;
+
+    private Scenes() {
+    }
+
+    // Motor con sitio para 4n balas enemigas, para que las escenas grandes no descarten nada.
+    static GameEngine engine(int n, long seed) {
+        return new GameEngine(seed, Math.max(GameEngine.ENEMY_PROJECTILE_CAPACITY, 4 * n),
+                ProjectilePool.OverflowPolicy.DROP_OLDEST);
+    }
+
+    // Formacion compacta de n enemigos; las filas se solapan si hace falta para no llegar al jugador.
+    static void fillFormation(GameEngine engine, int n) {
+        Formation enemies = engine.getEnemies();
+        int rows = Math.max(1, (n + FORMATION_COLUMNS - 1) / FORMATION_COLUMNS);
+        int spacingY = Math.max(1, Math.min(FORMATION_SPACING, (GameEngine.SQUARE_Y_POSITION - GameEngine.ENEMY_SIZE - 140) / rows));
+        enemies.reset(10, 40, FORMATION_COLUMNS, rows, FORMATION_SPACING, spacingY);
+        for (int i = 0; i < n; i++) {
+            enemies.addMember(i % FORMATION_COLUMNS, i / FORMATION_COLUMNS, GameEngine.ENEMY_SIZE,
+                    GameEngine.ENEMY_SIZE, GameEngine.ENEMY_HITS);
+        }
+    }
+
+    // Las piscinas llenas descartan los que no caben segun su politica.
+    static void fillProjectiles(ProjectilePool pool, int n, Random random) {
+        for (int i = 0; i < n; i++) {
+            pool.spawn(randomX(random, GameEngine.PROJECTILE_SIZE),
+                    random.nextInt(GameEngine.GAME_HEIGHT), GameEngine.PROJECTILE_SIZE, GameEngine.PROJECTILE_SIZE);
+        }
+    }
+
+    static void fillCamicases(GameEngine engine, int n, Random random) {
+        for (int i = 0; i < n; i++) {
+            engine.getCamicases().add(randomX(random, GameEngine.ENEMY_SIZE), -random.nextInt(GameEngine.GAME_HEIGHT),
+                    GameEngine.ENEMY_SIZE, GameEngine.ENEMY_SIZE, GameEngine.ENEMY_HITS);
+        }
+    }
+
+    // Explosiones con restos hasta tener unas n particulas vivas.
+    static void fillParticles(ParticleSystem particles, int n, Random random) {
+        while (particles.size() < n && particles.size() < particles.capacity()) {
+            particles.explosion(random.nextInt(GameEngine.GAME_WIDTH), random.nextInt(GameEngine.SQUARE_Y_POSITION),
+                    GameEngine.ENEMY_SIZE, random.nextInt(ParticleSystem.COLORS), GameEngine.ENEMY_DEBRIS);
+        }
+    }
+
+    // Posicion horizontal fuera de la columna del jugador, que no se mueve: asi la escena no
+    // acaba en game over y se mide siempre la misma carga.
+    static int randomX(Random random, int width) {
+        int playerX = (GameEngine.GAME_WIDTH - GameEngine.SQUARE_SIZE) / 2;
+        int free = GameEngine.GAME_WIDTH - GameEngine.SQUARE_SIZE - 2 * width;
+        int x = random.nextInt(free);
+        return x < playerX - width ? x : x + GameEngine.SQUARE_SIZE + 2 * width;
+    }
+
+    // Un tick sin medir para que la rejilla y las piscinas alcancen su tamano de trabajo.
+    static void settle(GameEngine engine, String scene) {
+        engine.step(GameEngine.INPUT_FIRE);
+        if (engine.isGameOver()) {
+            throw new IllegalStateException("La escena " + scene + " termina la partida en el primer tick");
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package clases;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// Comprueba sin ventana que saveState/loadState, fromState y fork restauran el motor entero: en
+// varios puntos de una partida se guarda el estado y se restaura de tres formas (desde fichero
+// con fromState, con fork y con loadState sobre un motor de la misma configuracion que venia de
+// otra partida), y los cuatro motores avanzan a la par con la misma entrada y la misma huella
+// en cada tick. Los puntos incluyen al jefe vivo y un estado sin jefe cargado sobre uno con el.
+// Tambien que un estado corrupto o cortado da error sin tocar el motor que lo carga.
+// Uso: java clases.StateCheck (sale con error si algo no cuadra)
+public class StateCheck {
+    private static final int LOCKSTEP_TICKS = 2_000;
+    private static final int DIRTY_TICKS = 700;
+    private static final int BOSS_SAVE_DELAY = 50;
+
+    private static int restores;
+    private static int rejected;
+
+    public static void main(String[] args) throws IOException {
+        Path file = Files.createTempFile("malaga-estado", ".mlgs");
+        try {
+            HitMasks masks = AssetManager.loadHitMasks();
+            // DODGE con la semilla 3 llega al jefe hacia el tick 8.600
+            check(file, new GameEngine(3, WavePreset.CAMPAIGN), null, Bot.DODGE, new int[]{0, 500, 4_000}, true);
+            check(file, new GameEngine(8, WavePreset.CAMPAIGN, 25), masks, Bot.RANDOM, new int[]{300, 1_200}, false);
+            check(file, new GameEngine(5, WavePreset.STRESS_1K, 2048, ProjectilePool.OverflowPolicy.DROP_OLDEST), masks,
+                    Bot.SWEEP, new int[]{200, 1_000}, false);
+            checkOtherConfiguration();
+            checkCorrupt(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        System.out.println("StateCheck: " + restores + " restauraciones y " + rejected + " estados corruptos OK");
+    }
+
+    private static void check(Path file, GameEngine engine, HitMasks masks, Bot bot, int[] saveTicks,
+                              boolean untilBoss) throws IOException {
+        String name = engine.getPreset() + "/" + bot + (masks != null ? "/pixel" : "/cajas");
+        engine.setHitMasks(masks);
+        GameRandom random = new GameRandom(engine.getSeed());
+        ProjectilePool pool = engine.getEnemyProjectiles();
+        GameEngine dirty = new GameEngine(engine.getSeed(), engine.getPreset(), pool.getMaxCapacity(), pool.getPolicy(),
+                engine.getTickMillis());
+        dirty.setHitMasks(masks);
+        GameRandom dirtyRandom = new GameRandom(engine.getSeed() + 1);
+
+        StateBuffer first = null;
+        long bossTick = -1;
+        boolean bossSaved = !untilBoss;
+        int next = 0;
+        while (next < saveTicks.length || !bossSaved) {
+            if (untilBoss && bossTick < 0 && engine.getBossEnemy() != null) {
+                bossTick = engine.getTick() + BOSS_SAVE_DELAY;
+            }
+            // Cada comprobacion avanza el motor LOCKSTEP_TICKS, asi que un punto puede quedar atras
+            boolean save = next < saveTicks.length && engine.getTick() >= saveTicks[next];
+            if (save || engine.getTick() == bossTick) {
+                if (save) {
+                    next++;
+                } else if (engine.getBossEnemy() == null) {
+                    throw new IllegalStateException(name + ": el jefe ya no esta en el tick " + bossTick);
+                } else {
+                    bossSaved = true;
+                }
+                // El motor sucio juega otra partida antes de recibir el estado
+                for (int i = 0; i < DIRTY_TICKS; i++) {
+                    dirty.step(Bot.RANDOM.input(dirty, dirtyRandom) | GameEngine.INPUT_RESET);
+                }
+                StateBuffer state = new StateBuffer();
+                engine.saveState(state);
+                if (first == null) {
+                    first = state;
+                }
+                lockstep(name + " tick " + engine.getTick(), file, engine, state, dirty, masks, bot, random);
+            } else {
+                engine.step(bot.input(engine, random));
+            }
+            if (engine.isGameOver() && (next < saveTicks.length || !bossSaved)) {
+                throw new IllegalStateException(name + ": la partida acaba en el tick " + engine.getTick()
+                        + " antes de llegar a todos los puntos de guardado");
+            }
+        }
+        if (untilBoss) {
+            // Un estado sin jefe cargado sobre el motor que lo tiene
+            if (engine.getBossEnemy() == null) {
+                throw new IllegalStateException(name + ": el jefe ya no esta al cargar el primer estado");
+            }
+            lockstep(name + " primer estado sobre el jefe", file, engine, first, engine, masks, bot, random);
+        }
+    }
+
+    // Restaura state con fromState desde fichero, con fork de engine y con loadState sobre dirty, y
+    // avanza todo a la par. Si dirty es el propio engine, la referencia es una copia con fromState.
+    private static void lockstep(String name, Path file, GameEngine engine, StateBuffer state, GameEngine dirty,
+                                 HitMasks masks, Bot bot, GameRandom random) throws IOException {
+        state.save(file);
+        GameEngine restored = GameEngine.fromState(StateBuffer.load(file));
+        restored.setHitMasks(masks);
+        GameEngine forked = null;
+        if (engine != dirty) {
+            forked = engine.fork();
+        }
+        dirty.loadState(state);
+        GameEngine reference = engine != dirty ? engine : GameEngine.fromState(state);
+        reference.setHitMasks(masks);
+
+        StateBuffer again = new StateBuffer();
+        restored.saveState(again);
+        if (again.size() != state.size()) {
+            throw new IllegalStateException(name + ": guardar el motor restaurado ocupa " + again.size()
+                    + " bytes y el original " + state.size());
+        }
+        compare(name + " al restaurar", reference, restored, forked, dirty);
+
+        for (int i = 0; i < LOCKSTEP_TICKS; i++) {
+            int input = bot.input(reference, random);
+            reference.step(input);
+            restored.step(input);
+            if (forked != null) {
+                forked.step(input);
+            }
+            if (dirty != reference) {
+                dirty.step(input);
+            }
+            compare(name + " +" + (i + 1) + " ticks", reference, restored, forked, dirty);
+        }
+
+        // La copia de fork no comparte nada con el original
+        if (forked != null) {
+            long hash = reference.stateHash();
+            for (int i = 0; i < 100; i++) {
+                forked.step(GameEngine.INPUT_LEFT | GameEngine.INPUT_FIRE);
+            }
+            if (reference.stateHash() != hash) {
+                throw new IllegalStateException(name + ": avanzar la copia de fork cambia el original");
+            }
+        }
+        restores++;
+    }
+
+    private static void compare(String name, GameEngine reference, GameEngine restored, GameEngine forked,
+                                GameEngine dirty) {
+        long hash = reference.stateHash();
+        if (restored.stateHash() != hash || (forked != null && forked.stateHash() != hash) || dirty.stateHash() != hash) {
+            throw new IllegalStateException(String.format("%s: huellas %016x (original) %016x (fromState) %s (fork) "
+                            + "%016x (loadState)", name, hash, restored.stateHash(),
+                    forked != null ? String.format("%016x", forked.stateHash()) : "-", dirty.stateHash()));
+        }
+    }
+
+    // loadState solo acepta estados de un motor con la misma semilla, preset, piscina y paso.
+    private static void checkOtherConfiguration() {
+        StateBuffer state = new StateBuffer();
+        new GameEngine(1, WavePreset.CAMPAIGN).saveState(state);
+        GameEngine[] others = {
+                new GameEngine(2, WavePreset.CAMPAIGN),
+                new GameEngine(1, WavePreset.STRESS_1K),
+                new GameEngine(1, WavePreset.CAMPAIGN, 64, ProjectilePool.OverflowPolicy.DROP_OLDEST),
+                new GameEngine(1, WavePreset.CAMPAIGN, 20)
+        };
+        for (GameEngine other : others) {
+            try {
+                other.loadState(state);
+                throw new IllegalStateException("Se carga un estado de otra configuracion en " + other.getPreset());
+            } catch (IllegalArgumentException expected) {
+                // es lo que tiene que pasar
+            }
+        }
+    }
+
+    // Estados cortados en muchos puntos y con enteros cambiados por -1 o por el anterior (indices
+    // repetidos): o se cargan o fallan con IllegalStateException/IllegalArgumentException, y si
+    // fallan el motor sigue exactamente como estaba.
+    private static void checkCorrupt(Path file) throws IOException {
+        checkCorruptStores();
+        GameEngine source = new GameEngine(5, WavePreset.STRESS_1K, 2048, ProjectilePool.OverflowPolicy.DROP_OLDEST);
+        GameRandom random = new GameRandom(5);
+        for (int i = 0; i < 300; i++) {
+            source.step(Bot.SWEEP.input(source, random));
+        }
+        StateBuffer state = new StateBuffer();
+        source.saveState(state);
+        state.save(file);
+        byte[] bytes = Files.readAllBytes(file);
+
+        GameEngine target = source.fork();
+        for (int i = 0; i < 50; i++) {
+            target.step(Bot.SWEEP.input(target, random));
+        }
+        StateBuffer before = new StateBuffer();
+        target.saveState(before);
+
+        for (int length = 0; length < bytes.length; length += 1 + length / 8) {
+            Files.write(file, Arrays.copyOf(bytes, length));
+            if (load(target, StateBuffer.load(file), before, "cortado a " + length + " bytes")) {
+                throw new IllegalStateException("Se carga un estado cortado a " + length + " de " + bytes.length + " bytes");
+            }
+        }
+        for (int at = 5; at + 4 <= bytes.length; at += 3) {
+            byte[] corrupt = bytes.clone();
+            Arrays.fill(corrupt, at, at + 4, (byte) -1);
+            tryCorrupt(file, corrupt, target, before, "-1 en el byte " + at);
+            if (at >= 4) {
+                corrupt = bytes.clone();
+                System.arraycopy(bytes, at - 4, corrupt, at, 4);
+                tryCorrupt(file, corrupt, target, before, "entero repetido en el byte " + at);
+            }
+        }
+    }
+
+    private static void tryCorrupt(Path file, byte[] corrupt, GameEngine target, StateBuffer before, String what)
+            throws IOException {
+        Files.write(file, corrupt);
+        if (load(target, StateBuffer.load(file), before, what)) {
+            target.loadState(before);
+        }
+    }
+
+    // true si se carga; si falla comprueba que target no ha cambiado.
+    private static boolean load(GameEngine target, StateBuffer state, StateBuffer before, String what) {
+        try {
+            target.loadState(state);
+            return true;
+        } catch (IllegalStateException | IllegalArgumentException expected) {
+            StateBuffer after = new StateBuffer();
+            target.saveState(after);
+            if (!sameBytes(before, after)) {
+                throw new IllegalStateException("Estado " + what + ": el fallo deja el motor a medio cargar");
+            }
+            rejected++;
+            return false;
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Estado " + what + ": falla con " + e, e);
+        }
+    }
+
+    private static boolean sameBytes(StateBuffer a, StateBuffer b) {
+        a.rewind();
+        b.rewind();
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (a.getByte() != b.getByte()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Lo que un estado corrupto no puede colar en los almacenes: un proyectil dos veces en el orden
+    // de creacion, uno fuera de rango y un numero negativo de particulas.
+    private static void checkCorruptStores() {
+        int[][] orders = {{0, 0}, {0, 2}, {1, -1}};
+        for (int[] order : orders) {
+            StateBuffer in = new StateBuffer();
+            in.putInt(2);
+            for (int array = 0; array < 5; array++) {
+                in.putInts(new int[]{1, 2}, 2);
+            }
+            in.putInt(order[0]);
+            in.putInt(order[1]);
+            in.rewind();
+            expectRejected(() -> new ProjectilePool(4, 4, ProjectilePool.OverflowPolicy.DROP_OLDEST).readFrom(in),
+                    "orden de proyectiles " + Arrays.toString(order));
+        }
+        StateBuffer in = new StateBuffer();
+        in.putInt(1);
+        in.putInt(-1);
+        in.rewind();
+        expectRejected(() -> new ParticleSystem(4).readFrom(in), "-1 particulas");
+    }
+
+    private static void expectRejected(Runnable read, String what) {
+        try {
+            read.run();
+        } catch (IllegalStateException expected) {
+            rejected++;
+            return;
+        }
+        throw new IllegalStateException("Se acepta un estado con " + what);
+    }
+}
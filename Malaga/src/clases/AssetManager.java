@@ -0,0 +1,246 @@
+package clases;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Carga todos los recursos en paralelo en un pool de hilos mientras se monta la ventana.
+// Comprueba al principio que existen (con el nombre exacto, mayusculas incluidas) y lleva
+// la cuenta de los tiempos de arranque hasta el primer frame.
+public class AssetManager {
+    static final String[] IMAGES = {
+        "resources/player.png",
+        "resources/bullet.png",
+        "resources/enemigoVioleta.png",
+        "resources/enemy_bullet.png",
+        "resources/camicase.png",
+        "resources/corazon.png",
+        "resources/boss.png",
+        "resources/logo_name.jpeg",
+        "resources/logo_malaga.jpg",
+    };
+    static final String BACKGROUND = "resources/bg.gif";
+    static final String EXPLOSION = "resources/explosion.gif";
+    // Alfa minimo para que un pixel cuente en las mascaras de colision
+    static final int MASK_ALPHA_THRESHOLD = 128;
+
+    private final GraphicsConfiguration configuration;
+    private final long startNanos = System.nanoTime();
+    private final Map<String, CompletableFuture<BufferedImage>> images = new LinkedHashMap<>();
+    private final Map<String, CompletableFuture<FrameAnimation>> animations = new LinkedHashMap<>();
+    private final ConcurrentLinkedQueue<String> decodeTimes = new ConcurrentLinkedQueue<>();
+    private final List<String> milestones = new ArrayList<>();
+    private ExecutorService pool;
+    private CompletableFuture<Void> ready;
+    private boolean reported;
+
+    public AssetManager(GraphicsConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    // Lanza la decodificacion de todos los recursos. Falla en el acto si falta alguno.
+    public synchronized AssetManager preload() {
+        if (ready != null) {
+            return this;
+        }
+        List<String> all = new ArrayList<>(List.of(IMAGES));
+        all.add(BACKGROUND);
+        all.add(EXPLOSION);
+        verify(all);
+
+        int workers = Math.max(1, Math.min(all.size(), Runtime.getRuntime().availableProcessors()));
+        AtomicInteger threadIndex = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(workers, r -> {
+            Thread thread = new Thread(r, "assets-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Las animaciones son lo mas lento de decodificar: se encolan primero
+        animations.put(BACKGROUND, CompletableFuture.supplyAsync(() -> timed(BACKGROUND,
+                () -> FrameAnimation.load(BACKGROUND, GameEngine.GAME_WIDTH, GameEngine.GAME_HEIGHT, true, configuration)), pool));
+        animations.put(EXPLOSION, CompletableFuture.supplyAsync(() -> timed(EXPLOSION,
+                () -> FrameAnimation.load(EXPLOSION, GameEngine.SQUARE_SIZE, GameEngine.SQUARE_SIZE, false, configuration)), pool));
+
+        for (String resource : IMAGES) {
+            images.put(resource, CompletableFuture.supplyAsync(() -> timed(resource, () -> readImage(resource)), pool));
+        }
+
+        List<CompletableFuture<?>> futures = new ArrayList<>(images.values());
+        futures.addAll(animations.values());
+        ready = CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .whenComplete((v, error) -> {
+                    mark("recursos listos");
+                    pool.shutdown();
+                });
+        return this;
+    }
+
+    public CompletableFuture<Void> ready() {
+        preload();
+        return ready;
+    }
+
+    public CompletableFuture<BufferedImage> imageFuture(String resource) {
+        preload();
+        CompletableFuture<BufferedImage> future = images.get(resource);
+        if (future == null) {
+            throw new IllegalArgumentException("Recurso no registrado en AssetManager: " + resource);
+        }
+        return future;
+    }
+
+    // Bloquea hasta que la imagen esta decodificada.
+    public BufferedImage image(String resource) {
+        return imageFuture(resource).join();
+    }
+
+    public FrameAnimation animation(String resource) {
+        preload();
+        CompletableFuture<FrameAnimation> future = animations.get(resource);
+        if (future == null) {
+            throw new IllegalArgumentException("Animacion no registrada en AssetManager: " + resource);
+        }
+        return future.join();
+    }
+
+    public GraphicsConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    public synchronized void mark(String milestone) {
+        milestones.add(String.format("  %-22s %8.1f ms", milestone, (System.nanoTime() - startNanos) / 1e6));
+    }
+
+    // Imprime el desglose de arranque una sola vez (normalmente al dibujar el primer frame).
+    public synchronized void printReport() {
+        if (reported) {
+            return;
+        }
+        reported = true;
+        StringBuilder report = new StringBuilder("Tiempo hasta el primer frame:\n");
+        for (String milestone : milestones) {
+            report.append(milestone).append('\n');
+        }
+        report.append("Decodificacion por recurso:\n");
+        for (String line : decodeTimes) {
+            report.append(line).append('\n');
+        }
+        System.out.print(report);
+    }
+
+    private <T> T timed(String resource, java.util.function.Supplier<T> loader) {
+        long start = System.nanoTime();
+        T result = loader.get();
+        decodeTimes.add(String.format("  %-30s %8.1f ms (%s)", resource, (System.nanoTime() - start) / 1e6,
+                Thread.currentThread().getName()));
+        return result;
+    }
+
+    // Con -Dmalaga.colisiones=pixel devuelve las mascaras de colision; con cajas (por defecto), null.
+    public static HitMasks hitMasksFromSystemProperty() {
+        String mode = System.getProperty("malaga.colisiones", "cajas");
+        if (mode.equalsIgnoreCase("pixel")) {
+            return loadHitMasks();
+        }
+        if (!mode.equalsIgnoreCase("cajas")) {
+            throw new IllegalArgumentException("malaga.colisiones tiene que ser cajas o pixel: " + mode);
+        }
+        return null;
+    }
+
+    // Mascaras sacadas del alfa de cada sprite escalado a su tamano de dibujo, igual que en el atlas.
+    // Se leen los PNG directamente para poder usarlas tambien sin ventana (Replayer, BatchRunner).
+    public static HitMasks loadHitMasks() {
+        BufferedImage enemyBullet = readImage("resources/enemy_bullet.png");
+        return new HitMasks(
+                mask(readImage("resources/player.png"), GameEngine.SQUARE_SIZE, GameEngine.SQUARE_SIZE),
+                mask(readImage("resources/bullet.png"), GameEngine.PROJECTILE_SIZE, GameEngine.PROJECTILE_SIZE),
+                mask(readImage("resources/enemigoVioleta.png"), GameEngine.ENEMY_SIZE, GameEngine.ENEMY_SIZE),
+                mask(enemyBullet, GameEngine.PROJECTILE_SIZE, GameEngine.PROJECTILE_SIZE),
+                mask(enemyBullet, GameEngine.PROJECTILE_SIZE, 2 * GameEngine.PROJECTILE_SIZE),
+                mask(readImage("resources/camicase.png"), GameEngine.ENEMY_SIZE, GameEngine.ENEMY_SIZE),
+                mask(readImage("resources/boss.png"), GameEngine.ENEMY_WIDTH, GameEngine.ENEMY_HEIGHT));
+    }
+
+    private static CollisionMask mask(BufferedImage source, int width, int height) {
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = scaled.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.drawImage(source, 0, 0, width, height, null);
+        g.dispose();
+        int[] argb = scaled.getRGB(0, 0, width, height, null, 0, width);
+        return CollisionMask.fromArgb(argb, width, height, MASK_ALPHA_THRESHOLD);
+    }
+
+    private static BufferedImage readImage(String resource) {
+        try (InputStream in = AssetManager.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("No se encuentra el recurso " + resource);
+            }
+            BufferedImage image = ImageIO.read(in);
+            if (image == null) {
+                throw new IllegalStateException("Formato de imagen no soportado: " + resource);
+            }
+            return image;
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo leer el recurso " + resource, e);
+        }
+    }
+
+    // En Windows el sistema de ficheros ignora mayusculas, pero dentro de un jar no; por eso se
+    // compara tambien el nombre real del fichero y se sugiere el correcto.
+    private static void verify(List<String> resources) {
+        List<String> problems = new ArrayList<>();
+        ClassLoader loader = AssetManager.class.getClassLoader();
+        for (String resource : resources) {
+            int slash = resource.lastIndexOf('/');
+            String directory = resource.substring(0, slash + 1);
+            String name = resource.substring(slash + 1);
+            String[] listing = listDirectory(loader.getResource(directory));
+
+            if (listing != null) {
+                String exact = null, similar = null;
+                for (String candidate : listing) {
+                    if (candidate.equals(name)) exact = candidate;
+                    else if (candidate.equalsIgnoreCase(name)) similar = candidate;
+                }
+                if (exact == null) {
+                    problems.add(similar != null
+                            ? resource + " (el fichero se llama " + directory + similar + ")"
+                            : resource + " (no existe)");
+                }
+            } else if (loader.getResource(resource) == null) {
+                problems.add(resource + " (no existe)");
+            }
+        }
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException("Faltan recursos del juego: " + String.join(", ", problems));
+        }
+    }
+
+    private static String[] listDirectory(URL directory) {
+        if (directory == null || !"file".equals(directory.getProtocol())) {
+            return null;
+        }
+        try {
+            return new File(directory.toURI()).list();
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package clases;
+
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Juega muchas partidas independientes sin ventana repartidas entre todos los nucleos con un
+// ForkJoinPool: los rangos de partidas se parten por la mitad y los hilos ociosos roban las
+// mitades pendientes, asi que las partidas largas no dejan nucleos parados. Cada partida tiene
+// su semilla y su motor y escribe su resultado en su propio hueco, sin nada compartido.
+// Uso: java clases.BatchRunner [partidas] [BOT] [hilos|escalado] [PRESET] [ticks maximos]
+//      (por defecto 1000 partidas, DODGE, todos los nucleos, CAMPAIGN y 180000 ticks = 30 min de juego)
+// Con -Dmalaga.colisiones=pixel las partidas chocan con mascaras de pixeles en vez de solo cajas.
+public class BatchRunner {
+    private static final int DEFAULT_MAX_TICKS = 180_000;
+    // Partidas que un hilo juega seguidas sin volver a partir el rango
+    private static final int LEAF_GAMES = 2;
+    private static final long BASE_SEED = 1_000_000L;
+
+    private final WavePreset preset;
+    private final Bot bot;
+    private final int maxTicks;
+    // Solo se leen, asi que todas las partidas comparten las mismas
+    private final HitMasks hitMasks = AssetManager.hitMasksFromSystemProperty();
+
+    // Resultado de cada partida, indexado por numero de partida
+    private final int[] levelReached;
+    private final int[] livesLeft;
+    private final long[] ticksPlayed;
+    private final int[] bossHealth;
+    private final boolean[] won;
+    private final long[] finalHash;
+
+    public BatchRunner(int games, WavePreset preset, Bot bot, int maxTicks) {
+        this.preset = preset;
+        this.bot = bot;
+        this.maxTicks = maxTicks;
+        levelReached = new int[games];
+        livesLeft = new int[games];
+        ticksPlayed = new long[games];
+        bossHealth = new int[games];
+        won = new boolean[games];
+        finalHash = new long[games];
+    }
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        Bot bot = args.length > 1 ? Bot.valueOf(args[1].toUpperCase(Locale.ROOT)) : Bot.DODGE;
+        String threadsArg = args.length > 2 ? args[2] : String.valueOf(Runtime.getRuntime().availableProcessors());
+        WavePreset preset = args.length > 3 ? WavePreset.valueOf(args[3].toUpperCase(Locale.ROOT)) : WavePreset.CAMPAIGN;
+        int maxTicks = args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_MAX_TICKS;
+
+        if (threadsArg.equalsIgnoreCase("escalado")) {
+            scaling(games, preset, bot, maxTicks);
+            return;
+        }
+        BatchRunner runner = new BatchRunner(games, preset, bot, maxTicks);
+        double seconds = runner.run(Integer.parseInt(threadsArg));
+        System.out.print(runner.report(seconds, Integer.parseInt(threadsArg)));
+    }
+
+    // Repite el mismo lote con 1, 2, 4... hilos hasta el numero de nucleos e informa de la aceleracion.
+    // Los resultados no dependen del numero de hilos: la huella del lote tiene que coincidir.
+    private static void scaling(int games, WavePreset preset, Bot bot, int maxTicks) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%d partidas de %s con %s, %d nucleos%n", games, preset, bot, cores);
+        System.out.printf("%6s %10s %12s %10s %11s  %s%n", "hilos", "s", "partidas/s", "ticks/s", "aceleracion", "huella");
+        // Calentamiento para que el JIT compile el motor antes de medir con un hilo
+        new BatchRunner(Math.max(1, games / 10), preset, bot, maxTicks).run(cores);
+        double baseline = 0;
+        for (int threads = 1; ; threads = Math.min(cores, threads * 2)) {
+            BatchRunner runner = new BatchRunner(games, preset, bot, maxTicks);
+            double seconds = runner.run(threads);
+            if (threads == 1) {
+                baseline = seconds;
+            }
+            System.out.printf(Locale.ROOT, "%6d %10.2f %12.1f %10.0f %10.2fx  %016x%n", threads, seconds,
+                    games / seconds, runner.totalTicks() / seconds, baseline / seconds, runner.batchHash());
+            if (threads == cores) {
+                break;
+            }
+        }
+    }
+
+    // Juega todas las partidas con el numero de hilos dado y devuelve los segundos que tardo.
+    public double run(int threads) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        try {
+            pool.invoke(new Games(0, won.length));
+        } finally {
+            pool.shutdown();
+        }
+        return (System.nanoTime() - start) / 1e9;
+    }
+
+    private class Games extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int from;
+        private final int to;
+
+        Games(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_GAMES) {
+                for (int game = from; game < to; game++) {
+                    play(game);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Games(from, middle), new Games(middle, to));
+        }
+    }
+
+    private void play(int game) {
+        long seed = BASE_SEED + game;
+        GameEngine engine = new GameEngine(seed, preset);
+        engine.setHitMasks(hitMasks);
+        GameRandom random = new GameRandom(~seed);
+        int maxLevel = 1;
+        int boss = -1;
+        // Al perder, el motor vuelve al nivel 1 y retira al jefe: se anotan mientras se juega
+        while (!engine.isGameOver() && engine.getTick() < maxTicks) {
+            engine.step(bot.input(engine, random));
+            maxLevel = Math.max(maxLevel, engine.getLevel());
+            GameEngine.BossEnemy bossEnemy = engine.getBossEnemy();
+            if (bossEnemy != null) {
+                boss = bossEnemy.health;
+            } else if (engine.hasWon()) {
+                boss = 0;
+            }
+        }
+        levelReached[game] = maxLevel;
+        livesLeft[game] = engine.getLives();
+        ticksPlayed[game] = engine.getTick();
+        bossHealth[game] = boss;
+        won[game] = engine.hasWon();
+        finalHash[game] = engine.stateHash();
+    }
+
+    public String report(double seconds, int threads) {
+        int games = won.length;
+        int wins = 0;
+        int timeouts = 0;
+        int maxLevel = 1;
+        for (int game = 0; game < games; game++) {
+            maxLevel = Math.max(maxLevel, levelReached[game]);
+        }
+        int[] byLevel = new int[maxLevel + 1];
+        long livesSum = 0;
+        long bossSum = 0;
+        int bossGames = 0;
+        int bestBoss = Integer.MAX_VALUE;
+        LatencyHistogram ticks = new LatencyHistogram();
+        for (int game = 0; game < games; game++) {
+            if (won[game]) wins++;
+            if (!won[game] && livesLeft[game] > 0) timeouts++;
+            byLevel[levelReached[game]]++;
+            livesSum += livesLeft[game];
+            ticks.record(ticksPlayed[game]);
+            if (bossHealth[game] >= 0) {
+                bossSum += bossHealth[game];
+                bossGames++;
+                bestBoss = Math.min(bestBoss, bossHealth[game]);
+            }
+        }
+
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "%d partidas de %s con %s en %.2f s con %d hilos (%.1f partidas/s, %.0f ticks/s)%n",
+                games, preset, bot, seconds, threads, games / seconds, totalTicks() / seconds));
+        out.append(String.format(Locale.ROOT, "  victorias=%d (%.1f%%) sin terminar=%d vidas medias al final=%.2f%n",
+                wins, 100.0 * wins / games, timeouts, livesSum / (double) games));
+        out.append(String.format(Locale.ROOT, "  ticks por partida: media=%.0f p50=%d p99=%d max=%d%n",
+                ticks.getMean(), ticks.percentile(50), ticks.percentile(99), ticks.getMax()));
+        out.append("  nivel alcanzado:");
+        for (int level = 1; level <= maxLevel; level++) {
+            out.append(String.format(Locale.ROOT, " %d=%d", level, byLevel[level]));
+        }
+        out.append(String.format("%n"));
+        if (bossGames > 0) {
+            out.append(String.format(Locale.ROOT, "  jefe: %d partidas, vida media restante=%.1f minima=%d%n",
+                    bossGames, bossSum / (double) bossGames, bestBoss));
+        }
+        out.append(String.format("  huella del lote=%016x%n", batchHash()));
+        return out.toString();
+    }
+
+    public long totalTicks() {
+        long total = 0;
+        for (long t : ticksPlayed) {
+            total += t;
+        }
+        return total;
+    }
+
+    // Combina las huellas finales en orden de partida: igual con cualquier numero de hilos.
+    public long batchHash() {
+        long h = 0;
+        for (long hash : finalHash) {
+            h = (h ^ hash) * 0x100000001B3L;
+        }
+        return h;
+    }
+}
@@ -0,0 +1,118 @@
+package clases;
+
+// Jugadores automaticos para partidas sin ventana (BatchRunner, SoakRunner, StressRunner). Deciden
+// la entrada de cada tick mirando solo el estado del motor y un generador propio, asi que la misma
+// semilla da siempre la misma partida.
+public enum Bot {
+    // Dispara siempre y barre la pantalla de lado a lado, cambiando de sentido cada SWEEP_MILLIS ms
+    SWEEP {
+        @Override
+        int input(GameEngine engine, GameRandom random) {
+            long half = engine.getTick() / engine.ticks(SWEEP_MILLIS);
+            int direction = half % 2 == 0 ? GameEngine.INPUT_LEFT : GameEngine.INPUT_RIGHT;
+            return direction | GameEngine.INPUT_FIRE;
+        }
+    },
+    // Dispara siempre y cambia de direccion al azar
+    RANDOM {
+        @Override
+        int input(GameEngine engine, GameRandom random) {
+            int direction = random.nextInt(3);
+            return (direction == 0 ? GameEngine.INPUT_LEFT : direction == 1 ? GameEngine.INPUT_RIGHT : 0)
+                    | GameEngine.INPUT_FIRE;
+        }
+    },
+    // Prueba quedarse, ir a la izquierda y a la derecha durante unos ticks, suponiendo que las balas
+    // y camicases siguen cayendo recto, y elige el movimiento que tarda mas en recibir un impacto;
+    // a igualdad, el que le acerca al objetivo mas cercano.
+    DODGE {
+        @Override
+        int input(GameEngine engine, GameRandom random) {
+            int playerX = engine.getPlayerX();
+            int center = playerX + GameEngine.SQUARE_SIZE / 2;
+            int targetX = targetX(engine, center);
+            int playerStep = engine.stepDistance(GameEngine.PLAYER_SPEED);
+            int preferred = targetX < center - playerStep ? -1 : targetX > center + playerStep ? 1 : 0;
+
+            int bestDirection = preferred;
+            int bestSafeTicks = safeTicks(engine, playerX, preferred);
+            for (int direction = -1; direction <= 1 && bestSafeTicks <= engine.ticks(LOOKAHEAD_MILLIS); direction++) {
+                if (direction != preferred) {
+                    int safe = safeTicks(engine, playerX, direction);
+                    if (safe > bestSafeTicks) {
+                        bestSafeTicks = safe;
+                        bestDirection = direction;
+                    }
+                }
+            }
+            int move = bestDirection < 0 ? GameEngine.INPUT_LEFT : bestDirection > 0 ? GameEngine.INPUT_RIGHT : 0;
+            return move | GameEngine.INPUT_FIRE;
+        }
+    };
+
+    private static final int SWEEP_MILLIS = 1000;
+    // Tiempo que DODGE mira hacia delante
+    private static final int LOOKAHEAD_MILLIS = 240;
+
+    abstract int input(GameEngine engine, GameRandom random);
+
+    // Ticks hasta el primer impacto si el jugador se mueve en la direccion dada (-1, 0, 1);
+    // los de LOOKAHEAD_MILLIS + 1 si no le alcanza nada en ese tiempo.
+    private static int safeTicks(GameEngine engine, int playerX, int direction) {
+        int playerStep = engine.stepDistance(GameEngine.PLAYER_SPEED);
+        int lookahead = engine.ticks(LOOKAHEAD_MILLIS);
+        int safe = firstHit(engine.getEnemyProjectiles(), playerX, direction, playerStep,
+                engine.stepDistance(GameEngine.PROJECTILE_SPEED), lookahead, lookahead + 1);
+        return firstHit(engine.getCamicases(), playerX, direction, playerStep,
+                engine.stepDistance(GameEngine.CAMICASE_SPEED), lookahead, safe);
+    }
+
+    // speed y playerStep en px por tick.
+    private static int firstHit(EntityStore store, int playerX, int direction, int playerStep, int speed, int lookahead,
+                                int limit) {
+        int top = GameEngine.SQUARE_Y_POSITION;
+        int bottom = top + GameEngine.SQUARE_SIZE;
+        int reach = lookahead * playerStep + GameEngine.SQUARE_SIZE;
+        for (int i = 0; i < store.count; i++) {
+            int left = store.x[i];
+            int right = left + store.w[i];
+            // Descarta lo que no puede llegar a la altura del jugador ni a su alcance horizontal
+            if (right < playerX - reach || left > playerX + reach || store.y[i] > bottom
+                    || store.y[i] + store.h[i] + speed * limit < top) {
+                continue;
+            }
+            for (int t = 1; t < limit; t++) {
+                int x = Math.max(0, Math.min(playerX + direction * playerStep * t,
+                        GameEngine.GAME_WIDTH - GameEngine.SQUARE_SIZE));
+                int y = store.y[i] + speed * t;
+                if (left < x + GameEngine.SQUARE_SIZE && x < right && y < bottom && top < y + store.h[i]) {
+                    limit = t;
+                    break;
+                }
+            }
+        }
+        return limit;
+    }
+
+    // x del jefe o del enemigo de primera linea mas cercano al jugador; center si no hay ninguno.
+    private static int targetX(GameEngine engine, int center) {
+        GameEngine.BossEnemy boss = engine.getBossEnemy();
+        if (boss != null) {
+            return boss.x + boss.width / 2;
+        }
+        Formation enemies = engine.getEnemies();
+        int best = center;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int c = 0; c < enemies.getColumns(); c++) {
+            int i = enemies.frontMember(c);
+            if (i != -1) {
+                int x = enemies.absX(i) + enemies.w[i] / 2;
+                if (Math.abs(x - center) < bestDistance) {
+                    bestDistance = Math.abs(x - center);
+                    best = x;
+                }
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,100 @@
+package clases;
+
+// Mascara de colision de un sprite a su tamano de dibujo: un bit por pixel opaco, con cada fila
+// empaquetada en longs (bit 0 = columna 0). Solo se consulta cuando las cajas ya se solapan, y
+// entonces compara 64 pixeles a la vez con un AND y solo en las filas y columnas comunes.
+public final class CollisionMask {
+    final int width;
+    final int height;
+    private final int wordsPerRow;
+    private final long[] bits;
+    // Caja de los pixeles opacos (fin exclusivo): descarta sin mirar bits los roces entre las
+    // partes transparentes de las cajas, que son la mayoria
+    private int minX, minY, maxX, maxY;
+
+    private CollisionMask(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = (width + 63) >>> 6;
+        this.bits = new long[wordsPerRow * height];
+    }
+
+    // argb en orden de filas, como lo devuelve BufferedImage.getRGB; es opaco todo pixel cuyo alfa
+    // llega al umbral.
+    public static CollisionMask fromArgb(int[] argb, int width, int height, int alphaThreshold) {
+        if (argb.length < width * height) {
+            throw new IllegalArgumentException("Faltan pixeles: " + argb.length + " para " + width + "x" + height);
+        }
+        CollisionMask mask = new CollisionMask(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (argb[y * width + x] >>> 24 >= alphaThreshold) {
+                    mask.bits[y * mask.wordsPerRow + (x >>> 6)] |= 1L << x;
+                    if (mask.maxX == 0) {
+                        mask.minX = x;
+                        mask.minY = y;
+                    }
+                    mask.minX = Math.min(mask.minX, x);
+                    mask.maxX = Math.max(mask.maxX, x + 1);
+                    mask.maxY = y + 1;
+                }
+            }
+        }
+        return mask;
+    }
+
+    public boolean fits(int w, int h) {
+        return width == w && height == h;
+    }
+
+    // Pixel a pixel, sin empaquetar; solo para comparar overlaps con una comprobacion directa.
+    boolean isOpaque(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height && (bits[y * wordsPerRow + (x >>> 6)] >>> x & 1) != 0;
+    }
+
+    public int opaquePixels() {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    // Si esta mascara en (x, y) y other en (ox, oy) tienen algun pixel opaco en comun.
+    public boolean overlaps(int x, int y, CollisionMask other, int ox, int oy) {
+        int x0 = Math.max(x + minX, ox + other.minX) - x;
+        int x1 = Math.min(x + maxX, ox + other.maxX) - x;
+        int y0 = Math.max(y + minY, oy + other.minY) - y;
+        int y1 = Math.min(y + maxY, oy + other.maxY) - y;
+        if (x0 >= x1 || y0 >= y1) {
+            return false;
+        }
+        // La columna c de esta mascara cae en la columna c + shift de la otra
+        int shift = x - ox;
+        int w0 = x0 >>> 6;
+        int w1 = (x1 - 1) >>> 6;
+        for (int row = y0; row < y1; row++) {
+            int base = row * wordsPerRow;
+            int otherRow = row + y - oy;
+            for (int w = w0; w <= w1; w++) {
+                long word = bits[base + w];
+                if (word != 0 && (word & other.bitsAt(otherRow, (w << 6) + shift)) != 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // 64 bits de la fila a partir de la columna start (puede ser negativa); fuera de la mascara son 0.
+    private long bitsAt(int row, int start) {
+        int w = start >> 6;
+        int s = start & 63;
+        long low = word(row, w) >>> s;
+        return s == 0 ? low : low | word(row, w + 1) << (64 - s);
+    }
+
+    private long word(int row, int w) {
+        return w < 0 || w >= wordsPerRow ? 0 : bits[row * wordsPerRow + w];
+    }
+}
@@ -0,0 +1,168 @@
+package clases;
+
+import java.util.Arrays;
+
+// Almacen de entidades en arrays paralelos (estructura de arrays). Las entidades vivas ocupan
+// los indices [0, count); borrar mueve la ultima entidad al hueco, asi que el orden no se conserva.
+// Los arrays crecen al doble cuando se llenan, pero nunca por encima de maxCapacity: pasar de
+// ahi es un fallo de la logica (o un estado guardado corrupto) y se avisa con una excepcion.
+public class EntityStore {
+    int[] x;
+    int[] y;
+    int[] w;
+    int[] h;
+    int[] hp;
+    // Tick en que se anadio cada entidad (los 32 bits bajos), para que GameRenderer no interpole
+    // lo que no existia en el tick anterior. No es estado jugable: no se guarda ni entra en la huella.
+    int[] born;
+    int count;
+    private final int maxCapacity;
+    private int spawnTick;
+
+    // Sin tope: para las copias de RenderSnapshot, que solo reciben almacenes ya limitados.
+    public EntityStore(int initialCapacity) {
+        this(initialCapacity, Integer.MAX_VALUE);
+    }
+
+    public EntityStore(int initialCapacity, int maxCapacity) {
+        if (maxCapacity <= 0) {
+            throw new IllegalArgumentException("maxCapacity debe ser positivo: " + maxCapacity);
+        }
+        this.maxCapacity = maxCapacity;
+        int capacity = Math.max(1, Math.min(initialCapacity, maxCapacity));
+        x = new int[capacity];
+        y = new int[capacity];
+        w = new int[capacity];
+        h = new int[capacity];
+        hp = new int[capacity];
+        born = new int[capacity];
+    }
+
+    // Tick que se anota como creacion de todo lo que se anada a partir de ahora.
+    public void setSpawnTick(long tick) {
+        spawnTick = (int) tick;
+    }
+
+    public int add(int px, int py, int pw, int ph, int health) {
+        if (count == x.length) {
+            if (count == maxCapacity) {
+                throw new IllegalStateException("Almacen lleno: " + maxCapacity + " entidades");
+            }
+            grow((int) Math.min((long) count * 2, maxCapacity));
+        }
+        int i = count++;
+        x[i] = px;
+        y[i] = py;
+        w[i] = pw;
+        h[i] = ph;
+        hp[i] = health;
+        born[i] = spawnTick;
+        return i;
+    }
+
+    // Borra la entidad i moviendo la ultima a su lugar. Al recorrer el almacen y borrar,
+    // no hay que avanzar el indice: en i queda una entidad que aun no se ha visitado.
+    public void remove(int i) {
+        int last = --count;
+        if (i != last) {
+            x[i] = x[last];
+            y[i] = y[last];
+            w[i] = w[last];
+            h[i] = h[last];
+            hp[i] = hp[last];
+            born[i] = born[last];
+        }
+    }
+
+    // Elimina todas las entidades con hp <= 0.
+    public void removeDestroyed() {
+        for (int i = 0; i < count; ) {
+            if (hp[i] <= 0) {
+                remove(i);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    public boolean intersects(int i, int ox, int oy, int ow, int oh) {
+        return x[i] < ox + ow && ox < x[i] + w[i] && y[i] < oy + oh && oy < y[i] + h[i];
+    }
+
+    // Copia las entidades de otro almacen reutilizando los arrays propios si caben.
+    public void copyFrom(EntityStore source) {
+        checkFits(source.count);
+        if (x.length < source.count) {
+            grow((int) Math.min(Math.max(source.count, (long) x.length * 2), maxCapacity));
+        }
+        count = source.count;
+        System.arraycopy(source.x, 0, x, 0, count);
+        System.arraycopy(source.y, 0, y, 0, count);
+        System.arraycopy(source.w, 0, w, 0, count);
+        System.arraycopy(source.h, 0, h, 0, count);
+        System.arraycopy(source.hp, 0, hp, 0, count);
+        System.arraycopy(source.born, 0, born, 0, count);
+    }
+
+    public void writeTo(StateBuffer out) {
+        out.putInt(count);
+        out.putInts(x, count);
+        out.putInts(y, count);
+        out.putInts(w, count);
+        out.putInts(h, count);
+        out.putInts(hp, count);
+    }
+
+    // Sustituye el contenido por el guardado con writeTo; solo reserva si no cabe.
+    public void readFrom(StateBuffer in) {
+        int n = in.getInt();
+        checkFits(n);
+        if (x.length < n) {
+            grow(n);
+        }
+        count = n;
+        in.getInts(x, n);
+        in.getInts(y, n);
+        in.getInts(w, n);
+        in.getInts(h, n);
+        in.getInts(hp, n);
+        // Lo cargado ya existia en el tick anterior
+        Arrays.fill(born, 0, n, spawnTick - 1);
+    }
+
+    // Se comprueba antes de reservar: un recuento corrupto no debe intentar crear arrays enormes.
+    void checkFits(int n) {
+        if (n < 0 || n > maxCapacity) {
+            throw new IllegalStateException("El estado tiene " + n + " entidades y caben " + maxCapacity);
+        }
+    }
+
+    public void clear() {
+        count = 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public int capacity() {
+        return x.length;
+    }
+
+    public int getMaxCapacity() {
+        return maxCapacity;
+    }
+
+    protected void grow(int capacity) {
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        w = Arrays.copyOf(w, capacity);
+        h = Arrays.copyOf(h, capacity);
+        hp = Arrays.copyOf(hp, capacity);
+        born = Arrays.copyOf(born, capacity);
+    }
+}
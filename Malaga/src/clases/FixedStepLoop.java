@@ -0,0 +1,74 @@
+package clases;
+
+// Acumulador de paso fijo: convierte el tiempo real transcurrido en un numero entero de ticks logicos.
+// Si un frame llega tarde se recuperan como mucho maxCatchUpTicks ticks extra; el resto se descarta
+// para no entrar en una espiral de retraso.
+public class FixedStepLoop {
+    private final int ticksPerSecond;
+    private final long stepNanos;
+    private final int maxCatchUpTicks;
+
+    private long lastNanos = -1;
+    private long accumulator;
+    private long totalTicks;
+    private long droppedTicks;
+
+    public FixedStepLoop(int ticksPerSecond, int maxCatchUpTicks) {
+        if (ticksPerSecond <= 0) {
+            throw new IllegalArgumentException("ticksPerSecond debe ser positivo: " + ticksPerSecond);
+        }
+        if (maxCatchUpTicks < 0) {
+            throw new IllegalArgumentException("maxCatchUpTicks no puede ser negativo: " + maxCatchUpTicks);
+        }
+        this.ticksPerSecond = ticksPerSecond;
+        this.stepNanos = 1_000_000_000L / ticksPerSecond;
+        this.maxCatchUpTicks = maxCatchUpTicks;
+    }
+
+    // Devuelve cuantos ticks hay que simular en este frame.
+    public int advance(long nowNanos) {
+        if (lastNanos < 0) {
+            lastNanos = nowNanos;
+            return 0;
+        }
+        accumulator += Math.max(0, nowNanos - lastNanos);
+        lastNanos = nowNanos;
+
+        long due = accumulator / stepNanos;
+        int steps = (int) Math.min(due, 1 + maxCatchUpTicks);
+        accumulator -= steps * stepNanos;
+
+        if (accumulator >= stepNanos) {
+            droppedTicks += accumulator / stepNanos;
+            accumulator %= stepNanos;
+        }
+        totalTicks += steps;
+        return steps;
+    }
+
+    public void reset() {
+        lastNanos = -1;
+        accumulator = 0;
+    }
+
+    // Fraccion del siguiente tick ya transcurrida, en [0, 1).
+    public double alpha() {
+        return accumulator / (double) stepNanos;
+    }
+
+    public int getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    public long getStepNanos() {
+        return stepNanos;
+    }
+
+    public long getTotalTicks() {
+        return totalTicks;
+    }
+
+    public long getDroppedTicks() {
+        return droppedTicks;
+    }
+}
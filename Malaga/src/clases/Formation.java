@@ -0,0 +1,198 @@
+package clases;
+
+import java.util.Arrays;
+
+// Oleada de enemigos guardada como desplazamientos (x, y) relativos a un origen comun. Moverla,
+// detectar los bordes y hacerla bajar cuesta O(1) por tick: solo cambia el origen y la caja
+// envolvente de los vivos se actualiza cuando muere alguno, a partir de cuantos quedan por
+// columna y por fila. Tambien se mantiene, por columna, el enemigo vivo mas bajo (la primera
+// linea), que es el unico que dispara.
+public class Formation extends EntityStore {
+    int originX;
+    int originY;
+    int[] col;
+    int[] row;
+
+    private int spacingX;
+    private int spacingY;
+    private int cols;
+    private int rows;
+    private int[] colCount = new int[0];
+    private int[] rowCount = new int[0];
+    private int minCol, maxCol, maxRow;
+
+    // memberAt[c * rows + r] es el indice del enemigo en esa celda o -1; frontRow[c] la fila viva mas baja
+    private int[] memberAt = new int[0];
+    private int[] frontRow = new int[0];
+
+    public Formation(int initialCapacity, int maxCapacity) {
+        super(initialCapacity, maxCapacity);
+        col = new int[capacity()];
+        row = new int[capacity()];
+    }
+
+    // Vacia la formacion y la prepara para una rejilla de cols x rows con la separacion dada.
+    // La rejilla no puede tener mas celdas que el tope: memberAt se reserva por celda.
+    public void reset(int originX, int originY, int cols, int rows, int spacingX, int spacingY) {
+        if (cols < 0 || rows < 0 || (long) cols * rows > getMaxCapacity()) {
+            throw new IllegalStateException("Rejilla de " + cols + "x" + rows + " y caben " + getMaxCapacity());
+        }
+        clear();
+        this.originX = originX;
+        this.originY = originY;
+        this.spacingX = spacingX;
+        this.spacingY = spacingY;
+        this.cols = cols;
+        this.rows = rows;
+        if (colCount.length < cols) colCount = new int[cols];
+        else Arrays.fill(colCount, 0);
+        if (rowCount.length < rows) rowCount = new int[rows];
+        else Arrays.fill(rowCount, 0);
+        if (memberAt.length < cols * rows) memberAt = new int[cols * rows];
+        Arrays.fill(memberAt, 0, cols * rows, -1);
+        if (frontRow.length < cols) frontRow = new int[cols];
+        Arrays.fill(frontRow, 0, cols, -1);
+        minCol = Integer.MAX_VALUE;
+        maxCol = -1;
+        maxRow = -1;
+    }
+
+    public int addMember(int c, int r, int width, int height, int health) {
+        int i = add(c * spacingX, r * spacingY, width, height, health);
+        col[i] = c;
+        row[i] = r;
+        colCount[c]++;
+        rowCount[r]++;
+        memberAt[c * rows + r] = i;
+        frontRow[c] = Math.max(frontRow[c], r);
+        minCol = Math.min(minCol, c);
+        maxCol = Math.max(maxCol, c);
+        maxRow = Math.max(maxRow, r);
+        return i;
+    }
+
+    @Override
+    public void remove(int i) {
+        int c = col[i], r = row[i];
+        if (--colCount[c] == 0) {
+            while (minCol <= maxCol && colCount[minCol] == 0) minCol++;
+            while (maxCol >= minCol && colCount[maxCol] == 0) maxCol--;
+        }
+        if (--rowCount[r] == 0) {
+            while (maxRow >= 0 && rowCount[maxRow] == 0) maxRow--;
+        }
+        memberAt[c * rows + r] = -1;
+        while (frontRow[c] >= 0 && memberAt[c * rows + frontRow[c]] == -1) frontRow[c]--;
+
+        int last = count - 1;
+        if (i != last) {
+            memberAt[col[last] * rows + row[last]] = i;
+        }
+        col[i] = col[last];
+        row[i] = row[last];
+        super.remove(i);
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        Arrays.fill(memberAt, 0, Math.min(memberAt.length, cols * rows), -1);
+        Arrays.fill(frontRow, 0, Math.min(frontRow.length, cols), -1);
+        minCol = Integer.MAX_VALUE;
+        maxCol = -1;
+        maxRow = -1;
+    }
+
+    @Override
+    public boolean intersects(int i, int ox, int oy, int ow, int oh) {
+        int ax = originX + x[i], ay = originY + y[i];
+        return ax < ox + ow && ox < ax + w[i] && ay < oy + oh && oy < ay + h[i];
+    }
+
+    @Override
+    protected void grow(int capacity) {
+        super.grow(capacity);
+        col = Arrays.copyOf(col, capacity);
+        row = Arrays.copyOf(row, capacity);
+    }
+
+    // Solo se guardan la rejilla y la celda, vida y tamano de cada miembro: las posiciones y los
+    // contadores por fila y columna se reconstruyen al leer, con los miembros en el mismo orden.
+    @Override
+    public void writeTo(StateBuffer out) {
+        out.putInt(originX);
+        out.putInt(originY);
+        out.putInt(cols);
+        out.putInt(rows);
+        out.putInt(spacingX);
+        out.putInt(spacingY);
+        out.putInt(count);
+        out.putInts(col, count);
+        out.putInts(row, count);
+        out.putInts(w, count);
+        out.putInts(h, count);
+        out.putInts(hp, count);
+    }
+
+    @Override
+    public void readFrom(StateBuffer in) {
+        int newOriginX = in.getInt();
+        int newOriginY = in.getInt();
+        int newCols = in.getInt();
+        int newRows = in.getInt();
+        int newSpacingX = in.getInt();
+        int newSpacingY = in.getInt();
+        reset(newOriginX, newOriginY, newCols, newRows, newSpacingX, newSpacingY);
+        int n = in.getInt();
+        checkFits(n);
+        if (x.length < n) {
+            grow(n);
+        }
+        // Las columnas de la rejilla hacen de espacio temporal mientras se leen los miembros
+        in.getInts(col, n);
+        in.getInts(row, n);
+        in.getInts(w, n);
+        in.getInts(h, n);
+        in.getInts(hp, n);
+        for (int i = 0; i < n; i++) {
+            int c = col[i], r = row[i];
+            if (c < 0 || c >= cols || r < 0 || r >= rows || memberAt[c * rows + r] != -1) {
+                throw new IllegalStateException("Miembro " + i + " fuera de la rejilla o repetido: (" + c + ", " + r + ")");
+            }
+            addMember(c, r, w[i], h[i], hp[i]);
+        }
+    }
+
+    public int getColumns() {
+        return cols;
+    }
+
+    // Indice del enemigo vivo mas bajo de la columna c, o -1 si la columna esta vacia.
+    public int frontMember(int c) {
+        int r = frontRow[c];
+        return r < 0 ? -1 : memberAt[c * rows + r];
+    }
+
+    public int absX(int i) {
+        return originX + x[i];
+    }
+
+    public int absY(int i) {
+        return originY + y[i];
+    }
+
+    // Borde izquierdo de la caja envolvente de los enemigos vivos.
+    public int left() {
+        return originX + minCol * spacingX;
+    }
+
+    // Borde derecho, suponiendo que todos los miembros comparten ancho (como en las oleadas del juego).
+    public int right(int memberWidth) {
+        return originX + maxCol * spacingX + memberWidth;
+    }
+
+    // Coordenada y superior de la fila viva mas baja.
+    public int lowestRowY() {
+        return originY + maxRow * spacingY;
+    }
+}
@@ -0,0 +1,174 @@
+package clases;
+
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+// Animacion GIF decodificada una sola vez al arrancar: cada frame se compone, se escala al tamano
+// de dibujo y se guarda como imagen compatible junto a su duracion. Es el reloj del juego el que
+// elige el frame, asi que durante la partida no hay decodificacion ni callbacks de ImageObserver.
+public class FrameAnimation {
+    private static final int DEFAULT_DELAY_MILLIS = 100;
+
+    private final BufferedImage[] frames;
+    private final int[] frameEnds;
+    private final int totalMillis;
+
+    private FrameAnimation(BufferedImage[] frames, int[] durations) {
+        this.frames = frames;
+        this.frameEnds = new int[durations.length];
+        int total = 0;
+        for (int i = 0; i < durations.length; i++) {
+            total += durations[i];
+            frameEnds[i] = total;
+        }
+        this.totalMillis = total;
+    }
+
+    public static FrameAnimation load(String resource, int width, int height, boolean opaque,
+                                      GraphicsConfiguration configuration) {
+        try (InputStream in = FrameAnimation.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalArgumentException("No se encuentra el recurso " + resource);
+            }
+            try (ImageInputStream stream = ImageIO.createImageInputStream(in)) {
+                return decode(stream, width, height, opaque, configuration);
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("No se pudo decodificar la animacion " + resource, e);
+        }
+    }
+
+    private static FrameAnimation decode(ImageInputStream stream, int width, int height, boolean opaque,
+                                         GraphicsConfiguration configuration) throws IOException {
+        Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName("gif");
+        if (!readers.hasNext()) {
+            throw new IOException("No hay lector de GIF disponible");
+        }
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(stream, false);
+            int count = reader.getNumImages(true);
+            int canvasWidth = reader.getWidth(0);
+            int canvasHeight = reader.getHeight(0);
+
+            // El lienzo acumula los frames parciales igual que lo haria un navegador
+            BufferedImage canvas = new BufferedImage(canvasWidth, canvasHeight, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D canvasGraphics = canvas.createGraphics();
+            List<BufferedImage> frames = new ArrayList<>(count);
+            int[] durations = new int[count];
+            try {
+                for (int i = 0; i < count; i++) {
+                    BufferedImage raw = reader.read(i);
+                    IIOMetadata metadata = reader.getImageMetadata(i);
+                    Node root = metadata.getAsTree("javax_imageio_gif_image_1.0");
+                    int left = 0, top = 0, delay = 0;
+                    String disposal = "none";
+                    for (Node node = root.getFirstChild(); node != null; node = node.getNextSibling()) {
+                        NamedNodeMap attributes = node.getAttributes();
+                        if ("ImageDescriptor".equals(node.getNodeName())) {
+                            left = intAttribute(attributes, "imageLeftPosition");
+                            top = intAttribute(attributes, "imageTopPosition");
+                        } else if ("GraphicControlExtension".equals(node.getNodeName())) {
+                            delay = intAttribute(attributes, "delayTime") * 10;
+                            disposal = attributes.getNamedItem("disposalMethod").getNodeValue();
+                        }
+                    }
+                    durations[i] = delay > 10 ? delay : DEFAULT_DELAY_MILLIS;
+
+                    BufferedImage previous = "restoreToPrevious".equals(disposal) ? copy(canvas) : null;
+                    canvasGraphics.drawImage(raw, left, top, null);
+                    frames.add(scale(canvas, width, height, opaque, configuration));
+
+                    if ("restoreToBackgroundColor".equals(disposal)) {
+                        canvasGraphics.setComposite(AlphaComposite.Clear);
+                        canvasGraphics.fillRect(left, top, raw.getWidth(), raw.getHeight());
+                        canvasGraphics.setComposite(AlphaComposite.SrcOver);
+                    } else if (previous != null) {
+                        canvasGraphics.setComposite(AlphaComposite.Src);
+                        canvasGraphics.drawImage(previous, 0, 0, null);
+                        canvasGraphics.setComposite(AlphaComposite.SrcOver);
+                    }
+                }
+            } finally {
+                canvasGraphics.dispose();
+            }
+            return new FrameAnimation(frames.toArray(new BufferedImage[0]), durations);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    private static int intAttribute(NamedNodeMap attributes, String name) {
+        Node node = attributes.getNamedItem(name);
+        return node == null ? 0 : Integer.parseInt(node.getNodeValue());
+    }
+
+    private static BufferedImage copy(BufferedImage source) {
+        BufferedImage copy = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = copy.createGraphics();
+        g.drawImage(source, 0, 0, null);
+        g.dispose();
+        return copy;
+    }
+
+    private static BufferedImage scale(BufferedImage source, int width, int height, boolean opaque,
+                                       GraphicsConfiguration configuration) {
+        BufferedImage target;
+        if (configuration != null) {
+            target = configuration.createCompatibleImage(width, height, opaque ? Transparency.OPAQUE : Transparency.TRANSLUCENT);
+        } else {
+            target = new BufferedImage(width, height, opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB_PRE);
+        }
+        Graphics2D g = target.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.drawImage(source, 0, 0, width, height, null);
+        g.dispose();
+        return target;
+    }
+
+    // Copia con los frames reescalados a otro tamano y las mismas duraciones.
+    public FrameAnimation scaledTo(int width, int height, GraphicsConfiguration configuration) {
+        BufferedImage[] scaled = new BufferedImage[frames.length];
+        int[] durations = new int[frames.length];
+        for (int i = 0; i < frames.length; i++) {
+            scaled[i] = scale(frames[i], width, height, false, configuration);
+            durations[i] = frameEnds[i] - (i > 0 ? frameEnds[i - 1] : 0);
+        }
+        return new FrameAnimation(scaled, durations);
+    }
+
+    // Frame visible a los millis dados desde el inicio; sin loop se queda en el ultimo frame.
+    public BufferedImage frameAt(long millis, boolean loop) {
+        if (millis < 0) {
+            millis = 0;
+        }
+        if (loop) {
+            millis %= totalMillis;
+        } else if (millis >= totalMillis) {
+            return frames[frames.length - 1];
+        }
+        int index = Arrays.binarySearch(frameEnds, (int) millis + 1);
+        return frames[index >= 0 ? index : -index - 1];
+    }
+
+    public int getFrameCount() {
+        return frames.length;
+    }
+
+    public int getTotalMillis() {
+        return totalMillis;
+    }
+}
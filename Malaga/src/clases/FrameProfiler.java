@@ -0,0 +1,213 @@
+package clases;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+// Mide cuanto tarda cada fase del tick y del pintado con System.nanoTime y lo acumula en
+// histogramas de cubetas fijas. Tambien cuenta entidades y bytes reservados por tick.
+// El perfilador NONE no mide nada, asi que el motor puede llamarlo siempre.
+// No esta sincronizado: cada instancia la usa un solo hilo. GamePanel tiene uno para la simulacion
+// y otro para el pintado, publica el resumen del primero en el snapshot y solo los junta al salir.
+public class FrameProfiler {
+    public static final int EVENTS = 0;
+    public static final int PLAYER = 1;
+    public static final int PROJECTILES = 2;
+    public static final int ENEMY_PROJECTILES = 3;
+    public static final int ENEMIES = 4;
+    public static final int CAMICASES = 5;
+    public static final int COLLISIONS = 6;
+    public static final int BOSS_COLLISIONS = 7;
+    public static final int PARTICLES = 8;
+    public static final int TICK = 9;
+    public static final int PAINT = 10;
+    // Desde que llega la tecla hasta que se pinta el primer frame con su efecto
+    public static final int INPUT_LATENCY = 11;
+    public static final int PHASES = 12;
+
+    private static final String[] PHASE_NAMES = {
+            "events", "player", "projectiles", "enemyProjectiles", "updateEnemies", "camicases",
+            "checkCollisions", "checkCollisionsWithBoss", "particles", "tick", "paint", "inputToFrame"
+    };
+    private static final String[] ENTITY_NAMES = {"projectiles", "enemyProjectiles", "enemies", "camicases", "particles"};
+    private static final long OVERLAY_REFRESH_NANOS = 250_000_000L;
+    public static final String OVERLAY_HEADER = String.format(Locale.ROOT, "%-23s %8s %8s %9s", "fase (us)", "p50", "p99", "max");
+
+    public static final FrameProfiler NONE = new FrameProfiler(false);
+
+    private final boolean enabled;
+    private final LatencyHistogram[] phases = new LatencyHistogram[PHASES];
+    private final long[] started = new long[PHASES];
+    private final LatencyHistogram allocatedPerTick = new LatencyHistogram();
+    private final com.sun.management.ThreadMXBean threads;
+    private long tickAllocationStart;
+
+    private final int[] entities = new int[ENTITY_NAMES.length];
+    private final int[] maxEntities = new int[ENTITY_NAMES.length];
+
+    private String[] overlayLines = new String[0];
+    private long overlayNanos;
+
+    public FrameProfiler() {
+        this(true);
+    }
+
+    private FrameProfiler(boolean enabled) {
+        this.enabled = enabled;
+        for (int i = 0; i < PHASES; i++) {
+            phases[i] = new LatencyHistogram();
+        }
+        // La cuenta de bytes reservados solo existe en las JVM de HotSpot
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (enabled && bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            threads = (com.sun.management.ThreadMXBean) bean;
+            threads.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            threads = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void begin(int phase) {
+        if (enabled) {
+            started[phase] = System.nanoTime();
+        }
+    }
+
+    public void end(int phase) {
+        if (enabled) {
+            phases[phase].record(System.nanoTime() - started[phase]);
+        }
+    }
+
+    public void beginTick() {
+        if (enabled) {
+            if (threads != null) {
+                tickAllocationStart = threads.getCurrentThreadAllocatedBytes();
+            }
+            started[TICK] = System.nanoTime();
+        }
+    }
+
+    public void endTick(GameEngine engine) {
+        if (!enabled) {
+            return;
+        }
+        phases[TICK].record(System.nanoTime() - started[TICK]);
+        if (threads != null) {
+            allocatedPerTick.record(threads.getCurrentThreadAllocatedBytes() - tickAllocationStart);
+        }
+        entities[0] = engine.getProjectiles().size();
+        entities[1] = engine.getEnemyProjectiles().size();
+        entities[2] = engine.getEnemies().size();
+        entities[3] = engine.getCamicases().size();
+        entities[4] = engine.getParticles().size();
+        for (int i = 0; i < entities.length; i++) {
+            maxEntities[i] = Math.max(maxEntities[i], entities[i]);
+        }
+    }
+
+    public void record(int phase, long nanos) {
+        if (enabled) {
+            phases[phase].record(nanos);
+        }
+    }
+
+    public LatencyHistogram getHistogram(int phase) {
+        return phases[phase];
+    }
+
+    public LatencyHistogram getAllocatedPerTick() {
+        return allocatedPerTick;
+    }
+
+    // Texto del overlay (sin la cabecera), solo con las fases que ha medido este perfilador; se
+    // rehace como mucho cuatro veces por segundo para que se pueda leer.
+    public String[] overlayLines() {
+        long now = System.nanoTime();
+        if (overlayLines.length > 0 && now - overlayNanos < OVERLAY_REFRESH_NANOS) {
+            return overlayLines;
+        }
+        overlayNanos = now;
+        boolean ticks = phases[TICK].getCount() > 0;
+        String[] lines = new String[PHASES + 2];
+        int n = 0;
+        for (int i = 0; i < PHASES; i++) {
+            LatencyHistogram h = phases[i];
+            if (h.getCount() > 0) {
+                lines[n++] = String.format(Locale.ROOT, "%-23s %8.1f %8.1f %9.1f", PHASE_NAMES[i],
+                        h.percentile(50) / 1e3, h.percentile(99) / 1e3, h.getMax() / 1e3);
+            }
+        }
+        if (ticks) {
+            lines[n++] = threads == null ? "bytes/tick: no disponible"
+                    : String.format(Locale.ROOT, "bytes/tick p50=%d p99=%d max=%d", allocatedPerTick.percentile(50),
+                            allocatedPerTick.percentile(99), allocatedPerTick.getMax());
+            lines[n++] = String.format("balas=%d enemigas=%d enemigos=%d camicases=%d particulas=%d",
+                    entities[0], entities[1], entities[2], entities[3], entities[4]);
+        }
+        overlayLines = Arrays.copyOf(lines, n);
+        return overlayLines;
+    }
+
+    // Suma las medidas de otro perfilador a las de este. Solo cuando el otro hilo ya no mide.
+    public void addAll(FrameProfiler other) {
+        for (int i = 0; i < PHASES; i++) {
+            phases[i].add(other.phases[i]);
+        }
+        allocatedPerTick.add(other.allocatedPerTick);
+        for (int i = 0; i < entities.length; i++) {
+            maxEntities[i] = Math.max(maxEntities[i], other.maxEntities[i]);
+        }
+    }
+
+    public void writeCsv(Path file) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            out.println("metric,unit,count,mean,p50,p99,max");
+            for (int i = 0; i < PHASES; i++) {
+                writeCsvRow(out, PHASE_NAMES[i], "ns", phases[i]);
+            }
+            writeCsvRow(out, "allocatedPerTick", "bytes", allocatedPerTick);
+            for (int i = 0; i < ENTITY_NAMES.length; i++) {
+                out.printf(Locale.ROOT, "%s,entities,,,%d,,%d%n", ENTITY_NAMES[i], entities[i], maxEntities[i]);
+            }
+        }
+    }
+
+    public void writeJson(Path file) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            out.println("{");
+            out.println("  \"phasesNanos\": {");
+            for (int i = 0; i < PHASES; i++) {
+                out.printf("    \"%s\": %s%s%n", PHASE_NAMES[i], json(phases[i]), i < PHASES - 1 ? "," : "");
+            }
+            out.println("  },");
+            out.printf("  \"allocatedBytesPerTick\": %s,%n", threads == null ? "null" : json(allocatedPerTick));
+            out.println("  \"entities\": {");
+            for (int i = 0; i < ENTITY_NAMES.length; i++) {
+                out.printf("    \"%s\": {\"last\": %d, \"max\": %d}%s%n", ENTITY_NAMES[i], entities[i], maxEntities[i],
+                        i < ENTITY_NAMES.length - 1 ? "," : "");
+            }
+            out.println("  }");
+            out.println("}");
+        }
+    }
+
+    private static void writeCsvRow(PrintWriter out, String name, String unit, LatencyHistogram h) {
+        out.printf(Locale.ROOT, "%s,%s,%d,%.1f,%d,%d,%d%n", name, unit, h.getCount(), h.getMean(),
+                h.percentile(50), h.percentile(99), h.getMax());
+    }
+
+    private static String json(LatencyHistogram h) {
+        return String.format(Locale.ROOT, "{\"count\": %d, \"mean\": %.1f, \"p50\": %d, \"p99\": %d, \"max\": %d}",
+                h.getCount(), h.getMean(), h.percentile(50), h.percentile(99), h.getMax());
+    }
+}
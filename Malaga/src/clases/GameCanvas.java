@@ -0,0 +1,53 @@
+package clases;
+
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+
+// Lienzo de renderizado activo: cada llamada a render() dibuja exactamente un frame en el
+// back buffer de la BufferStrategy (acelerado por hardware cuando la plataforma lo permite).
+public class GameCanvas extends Canvas {
+    private static final long serialVersionUID = 1L;
+    private static final int BUFFERS = 2;
+
+    public GameCanvas() {
+        setIgnoreRepaint(true);
+        setFocusable(true);
+    }
+
+    // Devuelve false si todavia no se puede renderizar (lienzo sin mostrar).
+    public boolean render(GameRenderer renderer, RenderSnapshot snapshot, double alpha) {
+        if (!isDisplayable() || getWidth() <= 0 || getHeight() <= 0) {
+            return false;
+        }
+        BufferStrategy strategy = getBufferStrategy();
+        if (strategy == null) {
+            createBufferStrategy(BUFFERS);
+            strategy = getBufferStrategy();
+        }
+
+        do {
+            do {
+                Graphics g = strategy.getDrawGraphics();
+                try {
+                    g.setColor(getBackground());
+                    g.fillRect(0, 0, getWidth(), getHeight());
+                    renderer.render(g, snapshot, alpha, getWidth(), getHeight());
+                } finally {
+                    g.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+        Toolkit.getDefaultToolkit().sync();
+        return true;
+    }
+
+    // Los repintados del sistema se ignoran: el frame siguiente ya lo dibuja render().
+    @Override
+    public void update(Graphics g) {
+    }
+
+    @Override
+    public void paint(Graphics g) {
+    }
+}
@@ -0,0 +1,1023 @@
+package clases;
+
+// Reglas y estado del juego sin dependencias de AWT/Swing: avanza un tick por llamada a step().
+public class GameEngine {
+    public static final int INPUT_LEFT = 1;
+    public static final int INPUT_RIGHT = 1 << 1;
+    public static final int INPUT_FIRE = 1 << 2;
+    // Reiniciar tambien es una entrada del tick, para que las partidas grabadas incluyan los reinicios
+    public static final int INPUT_RESET = 1 << 3;
+
+    // Paso logico por defecto. Cada motor puede usar otro (ver tickMillis): las velocidades van en
+    // px/s y los intervalos en ms, asi que el juego va igual de rapido con cualquier paso.
+    public static final int TICK_MILLIS = 10;
+
+    static final int SQUARE_SIZE = 48;
+    static final int PROJECTILE_SIZE = 16;
+    static final int PROJECTILE_SPEED = 1000;
+    static final int ENEMY_SIZE = 38;
+    static final int ENEMY_SPEED = 300;
+    static final int ENEMY_DROP_DISTANCE = 30;
+    static final int ENEMY_DROP_THRESHOLD = 2;
+    static final int GAME_WIDTH = 500;
+    static final int GAME_HEIGHT = 700;
+    static final int SQUARE_Y_POSITION = GAME_HEIGHT - SQUARE_SIZE - 20;
+    static final int PLAYER_SPEED = 500;
+    static final int ENEMY_SHOOT_INTERVAL = 400;
+    static final int ENEMY_SHOOT_PROBABILITY = 5;
+    static final int CAMICASE_SPEED = 700;
+    static final int CAMICASE_SPAWN_INTERVAL = 1100;
+
+    static final int MAX_ENEMY_Y = 50 + SQUARE_Y_POSITION - ENEMY_SIZE;
+
+    static final int ENEMY_HEALTH = 50;
+    static final int BOSS_MOVE_INTERVAL = 100;
+    // px que avanza el jefe en cada EVENT_BOSS_MOVE, ademas de su movimiento de cada tick
+    static final int BOSS_MOVE_STEP = 3;
+    static final int BOSS_SHOOT_INTERVAL = 400;
+    static final int BOSS_FAST_SHOOT_INTERVAL = 300;
+
+    static final int ENEMY_WIDTH = 150;
+    static final int ENEMY_HEIGHT = 100;
+
+    static final int SHOOT_COOLDOWN = 500;
+    static final int IMMUNITY_DURATION = 1500;
+    static final int BLINK_INTERVAL = 100;
+    static final int EXPLOSION_DURATION = 300;
+    static final int GRID_CELL_SIZE = 32;
+    static final int ENEMY_HITS = 1;
+    static final int PROJECTILE_CAPACITY = 256;
+    static final int ENEMY_PROJECTILE_CAPACITY = 4096;
+    static final int PARTICLE_CAPACITY = 16384;
+    // Topes fijos por lista: ninguna oleada puede pasar de aqui (ver WaveConfig)
+    static final int ENEMY_CAPACITY = 16384;
+    static final int CAMICASE_CAPACITY = 1024;
+    static final int HIT_SPARKS = 6;
+    static final int ENEMY_DEBRIS = 14;
+    static final int PLAYER_DEBRIS = 60;
+    static final int BOSS_EXPLOSIONS = 8;
+    static final int BOSS_DEBRIS = 40;
+
+    private final long seed;
+    private final int tickMillis;
+    private final GameRandom random;
+    private long tick;
+
+    private int squareX;
+    private int enemyDropCounter = 0;
+    private final ProjectilePool projectiles;
+    private final Formation enemies = new Formation(64, ENEMY_CAPACITY);
+    private final ProjectilePool enemyProjectiles;
+    private final EntityStore camicases = new EntityStore(16, CAMICASE_CAPACITY);
+    private final UniformGrid enemyGrid = new UniformGrid(GAME_WIDTH, GAME_HEIGHT, GRID_CELL_SIZE);
+    private final UniformGrid camicaseGrid = new UniformGrid(GAME_WIDTH, GAME_HEIGHT, GRID_CELL_SIZE);
+    private final ParticleSystem particles;
+    // px/s con signo
+    private int enemyDirection = ENEMY_SPEED;
+    private int level = 1;
+    private final WavePreset preset;
+    private WaveConfig wave;
+    private int waveLevel;
+    private double shooterSkipLog;
+    private int lives = 3;
+    private boolean gameOver = false;
+    private boolean hasWon = false;
+
+    // Eventos del planificador que sustituyen a los javax.swing.Timer del panel
+    static final int EVENT_SHOOT_READY = 0;
+    static final int EVENT_ENEMY_VOLLEY = 1;
+    static final int EVENT_CAMICASE_SPAWN = 2;
+    static final int EVENT_BOSS_MOVE = 3;
+    static final int EVENT_BOSS_SHOOT = 4;
+    static final int EVENT_IMMUNITY_END = 5;
+    static final int EVENT_BLINK = 6;
+    static final int EVENT_TYPES = 7;
+
+    private final TickScheduler scheduler = new TickScheduler(EVENT_TYPES);
+    private boolean canShoot = true;
+    private int bossShootInterval = BOSS_SHOOT_INTERVAL;
+
+    private boolean isPlayerImmune = false;
+    private boolean isPlayerVisible = true;
+    private boolean showPlayer = true;
+
+    private BossEnemy bossEnemy;
+
+    private FrameProfiler profiler = FrameProfiler.NONE;
+    // null = colisiones solo por cajas
+    private HitMasks hitMasks;
+
+    private static final int STATE_MAGIC = 0x4D4C4753; // "MLGS"
+    private static final int STATE_VERSION = 3;
+
+    public GameEngine() {
+        this(System.nanoTime());
+    }
+
+    public GameEngine(long seed) {
+        this(seed, WavePreset.CAMPAIGN);
+    }
+
+    public GameEngine(long seed, WavePreset preset) {
+        this(seed, preset, TICK_MILLIS);
+    }
+
+    public GameEngine(long seed, WavePreset preset, int tickMillis) {
+        this(seed, preset, preset.getEnemyProjectileCapacity(), ProjectilePool.OverflowPolicy.DROP_OLDEST, tickMillis);
+    }
+
+    public GameEngine(long seed, int enemyProjectileCapacity, ProjectilePool.OverflowPolicy overflowPolicy) {
+        this(seed, WavePreset.CAMPAIGN, enemyProjectileCapacity, overflowPolicy);
+    }
+
+    public GameEngine(long seed, WavePreset preset, int enemyProjectileCapacity,
+                      ProjectilePool.OverflowPolicy overflowPolicy) {
+        this(seed, preset, enemyProjectileCapacity, overflowPolicy, TICK_MILLIS);
+    }
+
+    // tickMillis tiene que dividir un segundo para que FixedStepLoop lo siga sin deriva.
+    public GameEngine(long seed, WavePreset preset, int enemyProjectileCapacity,
+                      ProjectilePool.OverflowPolicy overflowPolicy, int tickMillis) {
+        if (tickMillis <= 0 || 1000 % tickMillis != 0) {
+            throw new IllegalArgumentException("El paso tiene que dividir 1000 ms: " + tickMillis);
+        }
+        this.seed = seed;
+        this.tickMillis = tickMillis;
+        this.preset = preset;
+        this.random = new GameRandom(seed);
+        this.projectiles = new ProjectilePool(64, PROJECTILE_CAPACITY, ProjectilePool.OverflowPolicy.REFUSE_SPAWN);
+        this.enemyProjectiles = new ProjectilePool(256, enemyProjectileCapacity, overflowPolicy);
+        this.particles = new ParticleSystem(PARTICLE_CAPACITY, seed, tickMillis);
+        squareX = (GAME_WIDTH - SQUARE_SIZE) / 2;
+        initializeEnemies();
+        scheduleWaveEvents();
+    }
+
+    // Paso que pide -Dmalaga.tickRate (ticks por segundo); sin la propiedad, TICK_MILLIS.
+    public static int tickMillisFromSystemProperty() {
+        int rate = Integer.getInteger("malaga.tickRate", 1000 / TICK_MILLIS);
+        if (rate <= 0 || 1000 % rate != 0) {
+            throw new IllegalArgumentException("malaga.tickRate tiene que dividir 1000: " + rate);
+        }
+        return 1000 / rate;
+    }
+
+    int ticks(int millis) {
+        return Math.max(1, millis / tickMillis);
+    }
+
+    // px que avanza en este tick algo que va a speed px/s. Sale de la distancia acumulada desde el
+    // tick 0, asi que las fracciones de pixel no se pierden aunque el paso no de px enteros.
+    int distance(int speed) {
+        long travelled = (long) speed * tick * tickMillis;
+        return (int) (Math.floorDiv(travelled, 1000) - Math.floorDiv(travelled - (long) speed * tickMillis, 1000));
+    }
+
+    // px por tick de media a speed px/s, para quien tiene que prever movimientos (Bot).
+    int stepDistance(int speed) {
+        return speed * tickMillis / 1000;
+    }
+
+    public void step(int input) {
+        profiler.beginTick();
+        if (gameOver && (input & INPUT_RESET) != 0) {
+            reset();
+        }
+        tick++;
+        markSpawnTick();
+        profiler.begin(FrameProfiler.EVENTS);
+        for (int event = scheduler.poll(tick); event != -1; event = scheduler.poll(tick)) {
+            handleEvent(event);
+        }
+        profiler.end(FrameProfiler.EVENTS);
+        if (!gameOver) {
+            update(input);
+        }
+        // Los efectos siguen avanzando con la partida terminada (la explosion del jugador)
+        profiler.begin(FrameProfiler.PARTICLES);
+        particles.update();
+        profiler.end(FrameProfiler.PARTICLES);
+        profiler.endTick(this);
+    }
+
+    // Lo que se cree en este tick queda marcado para que GameRenderer no lo interpole.
+    private void markSpawnTick() {
+        projectiles.setSpawnTick(tick);
+        enemyProjectiles.setSpawnTick(tick);
+        camicases.setSpawnTick(tick);
+    }
+
+    private void update(int input) {
+        profiler.begin(FrameProfiler.PLAYER);
+        int dx = 0;
+        int playerStep = distance(PLAYER_SPEED);
+        if ((input & INPUT_LEFT) != 0) dx -= playerStep;
+        if ((input & INPUT_RIGHT) != 0) dx += playerStep;
+        moveSquare(dx);
+        if ((input & INPUT_FIRE) != 0) shootProjectile();
+        profiler.end(FrameProfiler.PLAYER);
+
+        profiler.begin(FrameProfiler.PROJECTILES);
+        updateProjectiles();
+        profiler.end(FrameProfiler.PROJECTILES);
+        profiler.begin(FrameProfiler.ENEMY_PROJECTILES);
+        updateEnemyProjectiles();
+        profiler.end(FrameProfiler.ENEMY_PROJECTILES);
+        profiler.begin(FrameProfiler.ENEMIES);
+        updateEnemies();
+        profiler.end(FrameProfiler.ENEMIES);
+        profiler.begin(FrameProfiler.CAMICASES);
+        updateCamicases();
+        profiler.end(FrameProfiler.CAMICASES);
+        // Incluye checkCollisionsWithBoss, que ademas se mide por separado
+        profiler.begin(FrameProfiler.COLLISIONS);
+        checkCollisions();
+        profiler.end(FrameProfiler.COLLISIONS);
+
+        if (bossEnemy != null) {
+            moveBossEnemy(distance(bossEnemy.speed));
+        }
+    }
+
+    private void handleEvent(int event) {
+        switch (event) {
+            case EVENT_SHOOT_READY:
+                canShoot = true;
+                break;
+            case EVENT_ENEMY_VOLLEY:
+                if (wave.shootProbability > 0) {
+                    shootEnemyProjectiles();
+                }
+                scheduler.schedule(EVENT_ENEMY_VOLLEY, tick + ticks(wave.shootInterval));
+                break;
+            case EVENT_CAMICASE_SPAWN:
+                if (wave.camicaseCap > 0) {
+                    spawnCamicases();
+                }
+                scheduler.schedule(EVENT_CAMICASE_SPAWN, tick + ticks(wave.camicaseSpawnInterval));
+                break;
+            case EVENT_BOSS_MOVE:
+                if (bossEnemy != null) {
+                    moveBossEnemy(BOSS_MOVE_STEP);
+                    scheduler.schedule(EVENT_BOSS_MOVE, tick + ticks(BOSS_MOVE_INTERVAL));
+                }
+                break;
+            case EVENT_BOSS_SHOOT:
+                if (bossEnemy != null) {
+                    shootEnemyProjectiles();
+                    scheduler.schedule(EVENT_BOSS_SHOOT, tick + ticks(bossShootInterval));
+                }
+                break;
+            case EVENT_IMMUNITY_END:
+                isPlayerImmune = false;
+                isPlayerVisible = true;
+                scheduler.cancel(EVENT_BLINK);
+                break;
+            case EVENT_BLINK:
+                isPlayerVisible = !isPlayerVisible;
+                scheduler.schedule(EVENT_BLINK, tick + ticks(BLINK_INTERVAL));
+                break;
+            default:
+                throw new IllegalStateException("Evento desconocido: " + event);
+        }
+    }
+
+    private void scheduleWaveEvents() {
+        scheduler.schedule(EVENT_ENEMY_VOLLEY, tick + ticks(wave.shootInterval));
+        scheduler.schedule(EVENT_CAMICASE_SPAWN, tick + ticks(wave.camicaseSpawnInterval));
+    }
+
+    // Al acabar la partida solo siguen vivos los efectos visuales (parpadeo).
+    private void cancelGameplayEvents() {
+        scheduler.cancel(EVENT_SHOOT_READY);
+        scheduler.cancel(EVENT_ENEMY_VOLLEY);
+        scheduler.cancel(EVENT_CAMICASE_SPAWN);
+        scheduler.cancel(EVENT_BOSS_MOVE);
+        scheduler.cancel(EVENT_BOSS_SHOOT);
+    }
+
+    private void initializeEnemies() {
+        enemies.clear();
+        camicases.clear();
+        setWave(level);
+        if (wave.boss) {
+            initializeBossEnemy();
+        } else {
+            enemies.reset(wave.originX, wave.originY, wave.cols, wave.rows, wave.spacingX, wave.spacingY);
+            for (int row = 0; row < wave.rows; row++) {
+                for (int col = 0; col < wave.cols; col++) {
+                    enemies.addMember(col, row, ENEMY_SIZE, ENEMY_SIZE, wave.enemyHp);
+                }
+            }
+        }
+    }
+
+    private void setWave(int newLevel) {
+        waveLevel = newLevel;
+        wave = preset.wave(newLevel);
+        shooterSkipLog = Math.log(1.0 - wave.shootProbability / 100.0);
+    }
+
+    // Salta directamente al comienzo de un nivel. Lo usan las pruebas de rendimiento.
+    void startLevel(int newLevel) {
+        level = newLevel;
+        bossEnemy = null;
+        scheduler.cancel(EVENT_BOSS_MOVE);
+        scheduler.cancel(EVENT_BOSS_SHOOT);
+        projectiles.clear();
+        enemyProjectiles.clear();
+        initializeEnemies();
+    }
+
+    private void initializeBossEnemy() {
+        int bossX = (GAME_WIDTH - ENEMY_WIDTH) / 2;
+        int bossY = 50;
+        bossEnemy = new BossEnemy(bossX, bossY, ENEMY_WIDTH, ENEMY_HEIGHT, ENEMY_SPEED);
+        bossShootInterval = BOSS_SHOOT_INTERVAL;
+        scheduler.schedule(EVENT_BOSS_MOVE, tick + ticks(BOSS_MOVE_INTERVAL));
+        scheduler.schedule(EVENT_BOSS_SHOOT, tick + ticks(bossShootInterval));
+    }
+
+    private void moveSquare(int dx) {
+        squareX += dx;
+        squareX = Math.max(0, Math.min(squareX, GAME_WIDTH - SQUARE_SIZE));
+    }
+
+    private void shootProjectile() {
+        if (canShoot) {
+            int projectileX = squareX + (SQUARE_SIZE - PROJECTILE_SIZE) / 2;
+            int projectileY = SQUARE_Y_POSITION;
+            projectiles.spawn(projectileX, projectileY, PROJECTILE_SIZE, PROJECTILE_SIZE);
+            canShoot = false;
+            scheduler.schedule(EVENT_SHOOT_READY, tick + ticks(SHOOT_COOLDOWN));
+        }
+    }
+
+    private void shootEnemyProjectiles() {
+        if (bossEnemy != null) {
+            int projectileX = bossEnemy.x + (ENEMY_WIDTH - PROJECTILE_SIZE) / 2;
+            int projectileY = bossEnemy.y + ENEMY_HEIGHT;
+            enemyProjectiles.spawn(projectileX, projectileY, PROJECTILE_SIZE, PROJECTILE_SIZE);
+        } else {
+            // Solo dispara la primera linea de cada columna. En vez de tirar un numero por enemigo,
+            // el muestreo geometrico salta directamente a la siguiente columna que dispara.
+            int columns = enemies.getColumns();
+            for (int c = nextShooterSkip(); c < columns; c += 1 + nextShooterSkip()) {
+                int i = enemies.frontMember(c);
+                if (i != -1) {
+                    int projectileX = enemies.absX(i) + (ENEMY_SIZE - PROJECTILE_SIZE) / 2;
+                    int projectileY = enemies.absY(i) + ENEMY_SIZE;
+                    enemyProjectiles.spawn(projectileX, projectileY, PROJECTILE_SIZE, PROJECTILE_SIZE);
+                }
+            }
+        }
+    }
+
+    // Columnas que no disparan antes de la siguiente que si: Geometrica(wave.shootProbability %).
+    private int nextShooterSkip() {
+        double skip = Math.log(1.0 - random.nextDouble()) / shooterSkipLog;
+        return skip >= Integer.MAX_VALUE - 1 ? Integer.MAX_VALUE - 1 : (int) skip;
+    }
+
+    private void spawnCamicases() {
+        int cap = Math.min(wave.camicaseCap, CAMICASE_CAPACITY);
+        for (int i = 0; i < wave.camicasesPerSpawn && camicases.size() < cap; i++) {
+            int camicaseX = random.nextInt(GAME_WIDTH - ENEMY_SIZE);
+            int camicaseY = -ENEMY_SIZE;
+            camicases.add(camicaseX, camicaseY, ENEMY_SIZE, ENEMY_SIZE, ENEMY_HITS);
+        }
+    }
+
+    private void updateProjectiles() {
+        int[] y = projectiles.y;
+        int step = distance(PROJECTILE_SPEED);
+        for (int i = 0; i < projectiles.count; ) {
+            y[i] -= step;
+            if (y[i] + PROJECTILE_SIZE < 0) {
+                projectiles.remove(i);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    private void updateEnemyProjectiles() {
+        int[] y = enemyProjectiles.y;
+        int step = distance(PROJECTILE_SPEED);
+        for (int i = 0; i < enemyProjectiles.count; ) {
+            y[i] += step;
+            if (y[i] > GAME_HEIGHT) {
+                enemyProjectiles.remove(i);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    // Solo se mueve el origen de la formacion; los bordes salen de su caja envolvente.
+    private void updateEnemies() {
+        if (enemies.isEmpty()) {
+            return;
+        }
+        enemies.originX += distance(enemyDirection);
+        boolean hitEdge = enemies.left() <= 0 || enemies.right(ENEMY_SIZE) >= GAME_WIDTH;
+
+        if (hitEdge) {
+            enemyDropCounter++;
+            enemyDirection = -enemyDirection;
+
+            if (enemyDropCounter >= ENEMY_DROP_THRESHOLD) {
+                int room = MAX_ENEMY_Y - enemies.lowestRowY();
+                enemies.originY += Math.max(0, Math.min(ENEMY_DROP_DISTANCE, room));
+                enemyDropCounter = 0;
+            }
+        }
+    }
+
+    private void updateCamicases() {
+        int[] y = camicases.y;
+        int step = distance(CAMICASE_SPEED);
+        for (int i = 0; i < camicases.count; ) {
+            y[i] += step;
+            if (y[i] > GAME_HEIGHT) {
+                camicases.remove(i);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    private void checkCollisions() {
+        if (!projectiles.isEmpty()) {
+            // Fase amplia: solo se prueban los objetivos de las celdas que toca cada proyectil
+            camicaseGrid.clear();
+            for (int i = camicases.count - 1; i >= 0; i--) {
+                camicaseGrid.insert(i, camicases.x[i], camicases.y[i], camicases.w[i], camicases.h[i]);
+            }
+            enemyGrid.clear();
+            for (int i = enemies.count - 1; i >= 0; i--) {
+                enemyGrid.insert(i, enemies.absX(i), enemies.absY(i), enemies.w[i], enemies.h[i]);
+            }
+
+            boolean camicaseDestroyed = false;
+            boolean enemyDestroyed = false;
+            for (int p = 0; p < projectiles.count; ) {
+                int px = projectiles.x[p], py = projectiles.y[p], pw = projectiles.w[p], ph = projectiles.h[p];
+
+                int hit = camicaseGrid.firstOverlap(px, py, pw, ph);
+                while (hit != -1 && hitMasks != null && !masksHit(hitMasks.bullet, px, py, pw, ph, hitMasks.camicase,
+                        camicases.x[hit], camicases.y[hit], camicases.w[hit], camicases.h[hit])) {
+                    hit = camicaseGrid.nextOverlap(px, py, pw, ph, hit);
+                }
+                if (hit != -1) {
+                    if (--camicases.hp[hit] <= 0) {
+                        camicaseGrid.remove(hit);
+                        camicaseDestroyed = true;
+                        explodeEntity(camicases, hit, 0, 0, ParticleSystem.COLOR_CAMICASE);
+                    } else {
+                        particles.sparks(px + pw / 2, py, 1, HIT_SPARKS, ParticleSystem.COLOR_CAMICASE);
+                    }
+                    projectiles.remove(p);
+                    continue;
+                }
+
+                // Colisiones con enemigos
+                hit = enemyGrid.firstOverlap(px, py, pw, ph);
+                while (hit != -1 && hitMasks != null && !masksHit(hitMasks.bullet, px, py, pw, ph, hitMasks.enemy,
+                        enemies.absX(hit), enemies.absY(hit), enemies.w[hit], enemies.h[hit])) {
+                    hit = enemyGrid.nextOverlap(px, py, pw, ph, hit);
+                }
+                if (hit != -1) {
+                    if (--enemies.hp[hit] <= 0) {
+                        enemyGrid.remove(hit);
+                        enemyDestroyed = true;
+                        explodeEntity(enemies, hit, enemies.originX, enemies.originY, ParticleSystem.COLOR_ENEMY);
+                    } else {
+                        particles.sparks(px + pw / 2, py, 1, HIT_SPARKS, ParticleSystem.COLOR_ENEMY);
+                    }
+                    projectiles.remove(p);
+                    continue;
+                }
+                p++;
+            }
+            if (camicaseDestroyed) {
+                camicases.removeDestroyed();
+            }
+            if (enemyDestroyed) {
+                enemies.removeDestroyed();
+            }
+        }
+
+        // Verificamos las colisiones entre proyectiles enemigos y el jugador
+        for (int i = 0; i < enemyProjectiles.count; ) {
+            if (enemyProjectiles.intersects(i, squareX, SQUARE_Y_POSITION, SQUARE_SIZE, SQUARE_SIZE) && (hitMasks == null
+                    || touchesPlayer(hitMasks.enemyProjectile(enemyProjectiles.h[i]), enemyProjectiles, i, 0, 0))) {
+                particles.sparks(enemyProjectiles.x[i] + enemyProjectiles.w[i] / 2, SQUARE_Y_POSITION, -1, HIT_SPARKS,
+                        ParticleSystem.COLOR_PLAYER);
+                enemyProjectiles.remove(i);
+                loseLife();
+                if (gameOver) {
+                    return;
+                }
+            } else {
+                i++;
+            }
+        }
+
+        for (int i = 0; i < camicases.count; ) {
+            if (camicases.intersects(i, squareX, SQUARE_Y_POSITION, SQUARE_SIZE, SQUARE_SIZE)
+                    && (hitMasks == null || touchesPlayer(hitMasks.camicase, camicases, i, 0, 0))) {
+                boolean destroyed = --camicases.hp[i] <= 0;
+                if (destroyed) {
+                    explodeEntity(camicases, i, 0, 0, ParticleSystem.COLOR_CAMICASE);
+                    camicases.remove(i);
+                }
+                loseLife();
+                if (gameOver) {
+                    return;
+                }
+                if (destroyed) {
+                    continue;
+                }
+            }
+            i++;
+        }
+
+        for (int i = 0; i < enemies.count; ) {
+            if (enemies.intersects(i, squareX, SQUARE_Y_POSITION, SQUARE_SIZE, SQUARE_SIZE) && (hitMasks == null
+                    || touchesPlayer(hitMasks.enemy, enemies, i, enemies.originX, enemies.originY))) {
+                explodeEntity(enemies, i, enemies.originX, enemies.originY, ParticleSystem.COLOR_ENEMY);
+                enemies.remove(i);
+                loseLife();
+                if (gameOver) {
+                    return;
+                }
+            } else {
+                i++;
+            }
+        }
+
+        if (enemies.isEmpty() && !wave.boss) {
+            nextLevel();
+        }
+
+        if (wave.camicaseLasers) {
+            for (int i = 0; i < camicases.count; i++) {
+                shootLaser(i);
+            }
+        }
+
+        if (bossEnemy != null) {
+            profiler.begin(FrameProfiler.BOSS_COLLISIONS);
+            checkCollisionsWithBoss();
+            profiler.end(FrameProfiler.BOSS_COLLISIONS);
+        }
+    }
+
+    private void shootLaser(int camicase) {
+        int laserWidth = PROJECTILE_SIZE;
+        int laserHeight = 2 * PROJECTILE_SIZE;
+
+        int projectileX1 = camicases.x[camicase] + (camicases.w[camicase] - laserWidth) / 2 - 10;
+        int projectileX2 = camicases.x[camicase] + (camicases.w[camicase] - laserWidth) / 2 + 10;
+        int projectileY = camicases.y[camicase] + camicases.h[camicase];
+
+        enemyProjectiles.spawn(projectileX1, projectileY, laserWidth, laserHeight);
+        enemyProjectiles.spawn(projectileX2, projectileY, laserWidth, laserHeight);
+    }
+
+    private void checkCollisionsWithBoss() {
+        if (bossEnemy != null) {
+            for (int i = 0; i < projectiles.count; ) {
+                if (bossEnemy.intersects(projectiles.x[i], projectiles.y[i], projectiles.w[i], projectiles.h[i])
+                        && (hitMasks == null || masksHit(hitMasks.bullet, projectiles.x[i], projectiles.y[i],
+                        projectiles.w[i], projectiles.h[i], hitMasks.boss, bossEnemy.x, bossEnemy.y, bossEnemy.width,
+                        bossEnemy.height))) {
+                    particles.sparks(projectiles.x[i] + projectiles.w[i] / 2, projectiles.y[i], 1, HIT_SPARKS,
+                            ParticleSystem.COLOR_BOSS);
+                    projectiles.remove(i);
+                    bossEnemy.health--;
+                    if (bossEnemy.health <= 0) {
+                        particles.explosions(bossEnemy.x, bossEnemy.y, bossEnemy.width, bossEnemy.height,
+                                BOSS_EXPLOSIONS, ENEMY_SIZE * 2, ParticleSystem.COLOR_BOSS, BOSS_DEBRIS);
+                        bossEnemy = null;
+                        hasWon = true;
+                        gameOver = true;
+                        cancelGameplayEvents();
+                        return;
+                    }
+                } else {
+                    i++;
+                }
+            }
+
+            for (int i = 0; i < enemyProjectiles.count; ) {
+                if (enemyProjectiles.intersects(i, squareX, SQUARE_Y_POSITION, SQUARE_SIZE, SQUARE_SIZE) && (hitMasks == null
+                        || touchesPlayer(hitMasks.enemyProjectile(enemyProjectiles.h[i]), enemyProjectiles, i, 0, 0))) {
+                    particles.sparks(enemyProjectiles.x[i] + enemyProjectiles.w[i] / 2, SQUARE_Y_POSITION, -1,
+                            HIT_SPARKS, ParticleSystem.COLOR_PLAYER);
+                    enemyProjectiles.remove(i);
+                    loseLife();
+                    if (gameOver) {
+                        return;
+                    }
+                } else {
+                    i++;
+                }
+            }
+        }
+    }
+
+    // Explosion de la entidad i de un almacen cuyas posiciones son relativas a (originX, originY).
+    private void explodeEntity(EntityStore store, int i, int originX, int originY, int color) {
+        particles.explosion(originX + store.x[i] + store.w[i] / 2, originY + store.y[i] + store.h[i] / 2,
+                Math.max(store.w[i], store.h[i]), color, ENEMY_DEBRIS);
+    }
+
+    private void loseLife() {
+        if (preset.isPlayerInvulnerable()) {
+            return;
+        }
+        lives--;
+        if (lives <= 0) {
+            gameOver();
+            particles.explosion(squareX + SQUARE_SIZE / 2, SQUARE_Y_POSITION + SQUARE_SIZE / 2, SQUARE_SIZE,
+                    ParticleSystem.COLOR_PLAYER, PLAYER_DEBRIS);
+        } else {
+            startPlayerImmunity();
+        }
+    }
+
+    private void startPlayerImmunity() {
+        isPlayerImmune = true;
+        scheduler.schedule(EVENT_IMMUNITY_END, tick + ticks(IMMUNITY_DURATION));
+        if (!scheduler.isPending(EVENT_BLINK)) {
+            scheduler.schedule(EVENT_BLINK, tick + ticks(BLINK_INTERVAL));
+        }
+    }
+
+    private void nextLevel() {
+        level++;
+        initializeEnemies();
+    }
+
+    private void gameOver() {
+        level = 1;
+        gameOver = true;
+        cancelGameplayEvents();
+        bossEnemy = null;
+        projectiles.clear();
+        enemyProjectiles.clear();
+        camicases.clear();
+        enemies.clear();
+        showPlayer = false;
+    }
+
+    public void reset() {
+        gameOver = false;
+        hasWon = false;
+        level = 1;
+        lives = 3;
+        squareX = (GAME_WIDTH - SQUARE_SIZE) / 2;
+        showPlayer = true;
+
+        projectiles.clear();
+        enemies.clear();
+        enemyProjectiles.clear();
+        camicases.clear();
+        bossEnemy = null;
+        enemyDirection = ENEMY_SPEED;
+        enemyDropCounter = 0;
+
+        particles.clear();
+        isPlayerVisible = true;
+        isPlayerImmune = false;
+        canShoot = true;
+
+        scheduler.clear();
+        initializeEnemies();
+        scheduleWaveEvents();
+    }
+
+    // El jefe avanza step px: en horizontal y, con media vida, tambien bajando hacia el centro.
+    private void moveBossEnemy(int step) {
+        if (bossEnemy != null) {
+            if (bossEnemy.health <= ENEMY_HEALTH / 2 && !bossEnemy.hasMovedToMid) {
+                bossEnemy.y += step;
+                if (bossEnemy.y > GAME_HEIGHT / 2 - bossEnemy.height / 2) {
+                    bossEnemy.y = GAME_HEIGHT / 2 - bossEnemy.height / 2;
+                    bossEnemy.hasMovedToMid = true;
+
+                    bossShootInterval = BOSS_FAST_SHOOT_INTERVAL;
+                }
+            }
+
+            bossEnemy.x += bossEnemy.direction * step;
+            if (bossEnemy.x <= 0 || bossEnemy.x + ENEMY_WIDTH >= GAME_WIDTH) {
+                bossEnemy.direction *= -1;
+            }
+        }
+    }
+
+    // Huella del estado jugable completo. Dos motores con la misma semilla y las mismas entradas
+    // deben dar el mismo valor en cada tick.
+    public long stateHash() {
+        long h = mix(0, tick);
+        h = mix(h, squareX);
+        h = mix(h, level);
+        h = mix(h, lives);
+        h = mix(h, (gameOver ? 1 : 0) | (hasWon ? 2 : 0) | (canShoot ? 4 : 0) | (isPlayerImmune ? 8 : 0)
+                | (isPlayerVisible ? 16 : 0) | (showPlayer ? 32 : 0));
+        h = mix(h, enemyDirection);
+        h = mix(h, enemyDropCounter);
+        h = mix(h, enemies.originX);
+        h = mix(h, enemies.originY);
+        h = hashStore(h, projectiles);
+        h = hashStore(h, enemyProjectiles);
+        h = hashStore(h, enemies);
+        h = hashStore(h, camicases);
+        if (bossEnemy != null) {
+            h = mix(h, bossEnemy.x);
+            h = mix(h, bossEnemy.y);
+            h = mix(h, bossEnemy.health);
+            h = mix(h, bossEnemy.direction);
+        }
+        return h;
+    }
+
+    private static long hashStore(long h, EntityStore store) {
+        h = mix(h, store.count);
+        for (int i = 0; i < store.count; i++) {
+            h = mix(h, store.x[i]);
+            h = mix(h, store.y[i]);
+            h = mix(h, store.hp[i]);
+        }
+        return h;
+    }
+
+    private static long mix(long h, long value) {
+        h = (h ^ value) * 0x100000001B3L;
+        return h ^ (h >>> 29);
+    }
+
+    // Escribe en out todo el estado del motor (incluidos el generador aleatorio, los eventos
+    // pendientes y los efectos) precedido de su configuracion. Con el mismo buffer no reserva memoria.
+    public void saveState(StateBuffer out) {
+        ProjectilePool.OverflowPolicy policy = enemyProjectiles.getPolicy();
+        out.clear();
+        out.putInt(STATE_MAGIC);
+        out.putByte(STATE_VERSION);
+        out.putLong(seed);
+        out.putByte(preset.ordinal());
+        out.putInt(enemyProjectiles.getMaxCapacity());
+        out.putByte(policy.ordinal());
+        out.putInt(tickMillis);
+
+        out.putLong(tick);
+        out.putLong(random.getState());
+        out.putInt(squareX);
+        out.putInt(level);
+        out.putInt(waveLevel);
+        out.putInt(lives);
+        out.putInt(enemyDirection);
+        out.putInt(enemyDropCounter);
+        out.putInt(bossShootInterval);
+        out.putBoolean(gameOver);
+        out.putBoolean(hasWon);
+        out.putBoolean(canShoot);
+        out.putBoolean(isPlayerImmune);
+        out.putBoolean(isPlayerVisible);
+        out.putBoolean(showPlayer);
+        scheduler.writeTo(out);
+        projectiles.writeTo(out);
+        enemyProjectiles.writeTo(out);
+        enemies.writeTo(out);
+        camicases.writeTo(out);
+        particles.writeTo(out);
+        out.putBoolean(bossEnemy != null);
+        if (bossEnemy != null) {
+            out.putInt(bossEnemy.x);
+            out.putInt(bossEnemy.y);
+            out.putInt(bossEnemy.width);
+            out.putInt(bossEnemy.height);
+            out.putInt(bossEnemy.health);
+            out.putInt(bossEnemy.speed);
+            out.putInt(bossEnemy.direction);
+            out.putBoolean(bossEnemy.hasMovedToMid);
+        }
+    }
+
+    // Sustituye el estado por el guardado con saveState. El estado tiene que venir de un motor con
+    // la misma configuracion (semilla, preset, pool de proyectiles enemigos y paso). Primero se lee
+    // entero en un motor aparte, asi que un buffer corrupto lanza la excepcion sin tocar este.
+    public void loadState(StateBuffer in) {
+        fromState(in);
+        readState(in);
+    }
+
+    private void readState(StateBuffer in) {
+        in.rewind();
+        readStateHeader(in);
+        if (in.getLong() != seed || in.getByte() != preset.ordinal() || in.getInt() != enemyProjectiles.getMaxCapacity()
+                || in.getByte() != enemyProjectiles.getPolicy().ordinal() || in.getInt() != tickMillis) {
+            throw new IllegalArgumentException("El estado es de un motor con otra configuracion");
+        }
+
+        tick = in.getLong();
+        markSpawnTick();
+        random.setState(in.getLong());
+        squareX = in.getInt();
+        level = in.getInt();
+        int savedWave = in.getInt();
+        if (level < 1 || savedWave < 1) {
+            throw new IllegalStateException("Nivel corrupto en el estado: " + level + "/" + savedWave);
+        }
+        setWave(savedWave);
+        lives = in.getInt();
+        enemyDirection = in.getInt();
+        enemyDropCounter = in.getInt();
+        bossShootInterval = in.getInt();
+        gameOver = in.getBoolean();
+        hasWon = in.getBoolean();
+        canShoot = in.getBoolean();
+        isPlayerImmune = in.getBoolean();
+        isPlayerVisible = in.getBoolean();
+        showPlayer = in.getBoolean();
+        scheduler.readFrom(in);
+        projectiles.readFrom(in);
+        enemyProjectiles.readFrom(in);
+        enemies.readFrom(in);
+        camicases.readFrom(in);
+        particles.readFrom(in);
+        if (in.getBoolean()) {
+            if (bossEnemy == null) {
+                bossEnemy = new BossEnemy(0, 0, 0, 0, 0);
+            }
+            bossEnemy.x = in.getInt();
+            bossEnemy.y = in.getInt();
+            bossEnemy.width = in.getInt();
+            bossEnemy.height = in.getInt();
+            bossEnemy.health = in.getInt();
+            bossEnemy.speed = in.getInt();
+            bossEnemy.direction = in.getInt();
+            bossEnemy.hasMovedToMid = in.getBoolean();
+        } else {
+            bossEnemy = null;
+        }
+    }
+
+    // Crea un motor con la configuracion guardada en el estado y lo deja en ese estado.
+    public static GameEngine fromState(StateBuffer in) {
+        in.rewind();
+        readStateHeader(in);
+        long seed = in.getLong();
+        WavePreset preset = ordinal(WavePreset.values(), in.getByte());
+        int capacity = in.getInt();
+        ProjectilePool.OverflowPolicy policy = ordinal(ProjectilePool.OverflowPolicy.values(), in.getByte());
+        int tickMillis = in.getInt();
+        GameEngine engine = new GameEngine(seed, preset, capacity, policy, tickMillis);
+        engine.readState(in);
+        return engine;
+    }
+
+    // Copia independiente del motor en su estado actual, p. ej. para explorar jugadas sin tocar la partida.
+    public GameEngine fork() {
+        StateBuffer state = new StateBuffer();
+        saveState(state);
+        GameEngine copy = fromState(state);
+        copy.hitMasks = hitMasks;
+        return copy;
+    }
+
+    private static <E> E ordinal(E[] values, int ordinal) {
+        if (ordinal < 0 || ordinal >= values.length) {
+            throw new IllegalArgumentException("Configuracion corrupta en el estado: " + ordinal);
+        }
+        return values[ordinal];
+    }
+
+    private static void readStateHeader(StateBuffer in) {
+        if (in.getInt() != STATE_MAGIC) {
+            throw new IllegalArgumentException("No es un estado de Malaga");
+        }
+        int version = in.getByte();
+        if (version != STATE_VERSION) {
+            throw new IllegalArgumentException("Version de estado no soportada: " + version);
+        }
+    }
+
+    public void setProfiler(FrameProfiler profiler) {
+        this.profiler = profiler != null ? profiler : FrameProfiler.NONE;
+    }
+
+    public FrameProfiler getProfiler() {
+        return profiler;
+    }
+
+    // Con mascaras, los choques que pasan la prueba de cajas se confirman pixel a pixel. Cambia el
+    // desarrollo de la partida, asi que las grabaciones anotan si se usaron; el estado guardado no.
+    public void setHitMasks(HitMasks hitMasks) {
+        this.hitMasks = hitMasks;
+    }
+
+    public HitMasks getHitMasks() {
+        return hitMasks;
+    }
+
+    public WavePreset getPreset() {
+        return preset;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getTickMillis() {
+        return tickMillis;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public int getPlayerX() {
+        return squareX;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getLives() {
+        return lives;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    public boolean hasWon() {
+        return hasWon;
+    }
+
+    public boolean isPlayerShown() {
+        return showPlayer && isPlayerVisible;
+    }
+
+    ProjectilePool getProjectiles() {
+        return projectiles;
+    }
+
+    Formation getEnemies() {
+        return enemies;
+    }
+
+    ProjectilePool getEnemyProjectiles() {
+        return enemyProjectiles;
+    }
+
+    EntityStore getCamicases() {
+        return camicases;
+    }
+
+    ParticleSystem getParticles() {
+        return particles;
+    }
+
+    // Fase fina tras la prueba de cajas: la entidad i de store (relativa a originX, originY) contra el jugador.
+    private boolean touchesPlayer(CollisionMask mask, EntityStore store, int i, int originX, int originY) {
+        return masksHit(hitMasks.player, squareX, SQUARE_Y_POSITION, SQUARE_SIZE, SQUARE_SIZE, mask,
+                originX + store.x[i], originY + store.y[i], store.w[i], store.h[i]);
+    }
+
+    // Si alguno no mide lo que su mascara (p. ej. un preset con otros tamanos) vale la prueba de cajas.
+    private static boolean masksHit(CollisionMask a, int ax, int ay, int aw, int ah,
+                                    CollisionMask b, int bx, int by, int bw, int bh) {
+        return !a.fits(aw, ah) || !b.fits(bw, bh) || a.overlaps(ax, ay, b, bx, by);
+    }
+
+    BossEnemy getBossEnemy() {
+        return bossEnemy;
+    }
+
+    static class BossEnemy {
+        int x, y, width, height;
+        int health;
+        int speed;
+        int direction = 1;
+        boolean hasMovedToMid = false;
+
+        public BossEnemy(int x, int y, int width, int height, int speed) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.health = ENEMY_HEALTH;
+            this.speed = speed;
+        }
+
+        boolean intersects(int ox, int oy, int ow, int oh) {
+            return x < ox + ow && ox < x + width && y < oy + oh && oy < y + height;
+        }
+    }
+}
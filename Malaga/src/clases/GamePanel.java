@@ -2,702 +2,383 @@ package clases;
 
 import javax.swing.*;
 import java.awt.*;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Random;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 
 public class GamePanel extends JPanel {
     private static final long serialVersionUID = 1L;
-    private static final int SQUARE_SIZE = 48;
-    private static final int PROJECTILE_SIZE = 16;
-    private static final int PROJECTILE_SPEED = 10;
-    private static final int ENEMY_SIZE = 38;
-    private static final int ENEMY_SPEED = 3;
-    private static final int ENEMY_DROP_DISTANCE = 30;
-    private static final int ENEMY_DROP_THRESHOLD = 2;
-    private static final int GAME_WIDTH = 500;
-    private static final int GAME_HEIGHT = 700;
-    private static final int SQUARE_Y_POSITION = GAME_HEIGHT - SQUARE_SIZE - 20;
-    private static final int ENEMY_SHOOT_INTERVAL = 400;
-    private static final int ENEMY_SHOOT_PROBABILITY = 5;
-    private static final int CAMICASE_SPEED = 7;
-    private static final int CAMICASE_SPAWN_INTERVAL = 1100;
-
-    private static final int MAX_ENEMY_Y = 50 + SQUARE_Y_POSITION - ENEMY_SIZE;
-
-    private static final int ENEMY_HEALTH = 50;
-    private static final int BOSS_MOVE_INTERVAL = 100;
-    private static final int BOSS_SHOOT_INTERVAL = 400;
-    private static final int BOSS_FAST_SHOOT_INTERVAL = 300; 
-
-    private static final int ENEMY_WIDTH = 150;
-    private static final int ENEMY_HEIGHT = 100;
-
-    private ImageIcon backgroundImage;
-    private ImageIcon playerImage;
-    private ImageIcon bulletImage;
-    private ImageIcon enemyImage;
-    private ImageIcon enemyBulletImage;
-    private ImageIcon camicaseImage;
-    private ImageIcon corazonImage;
-    private ImageIcon explosionImage;
-    private ImageIcon bossImage;
-
-    private int squareX;
-    private Timer gameTimer;
-    private Timer shootTimer;
-    private Timer enemyShootTimer;
-    private Timer camicaseSpawnTimer;
-    private Timer bossShootTimer;
-    private int moveDirection;
-    private boolean canShoot;
-    private boolean isShooting;
-    private int enemyDropCounter = 0;
-    private List<Rectangle> projectiles;
-    private List<Enemy> enemies;
-    private List<Rectangle> enemyProjectiles;
-    private List<Camicase> camicases;
-    private int enemyDirection = ENEMY_SPEED;
-    private int level = 1;
-    private int lives = 3;
-    private Random random = new Random();
-    private boolean gameOver = false;
-
-    private boolean isPlayerImmune = false;
-    private boolean isPlayerVisible = true;
-    private Timer immunityTimer;
-    private Timer blinkTimer;
-
-    private boolean isExploding = false;
-    private int explosionX, explosionY;
-    private boolean showPlayer = true;
-
-    private BossEnemy bossEnemy;
-    private Timer bossMoveTimer;
-    private boolean hasWon = false;
+    private static final int GAME_WIDTH = GameEngine.GAME_WIDTH;
+    private static final int GAME_HEIGHT = GameEngine.GAME_HEIGHT;
+    private static final int FRAME_MILLIS = 8;
+    private static final int MAX_CATCH_UP_TICKS = 5;
+    private static final long THROUGHPUT_REPORT_NANOS = 5_000_000_000L;
+    private static final long PAUSE_POLL_NANOS = 20_000_000L;
+    private static final int INPUT_RING_CAPACITY = 1024;
+
+    public enum RenderMode {
+        ACTIVE,
+        PASSIVE
+    }
 
-    public GamePanel() {
-        setPreferredSize(new Dimension(GAME_WIDTH, GAME_HEIGHT));
-        squareX = (GAME_WIDTH - SQUARE_SIZE) / 2;
-        moveDirection = 0;
-        canShoot = true;
-        isShooting = false;
-        projectiles = new ArrayList<>();
-        enemies = new ArrayList<>();
-        enemyProjectiles = new ArrayList<>();
-        camicases = new ArrayList<>();
+    private final GameEngine engine;
+    private final FixedStepLoop loop;
+    private final AssetManager assets;
+    private final SnapshotExchange snapshots = new SnapshotExchange();
+    private GameRenderer renderer;
+    private boolean firstFrameRendered;
+    private GameCanvas canvas;
+    private Timer frameTimer;
+    private final boolean interpolate = !"false".equalsIgnoreCase(System.getProperty("malaga.interpolate"));
+    private double frameAlpha = 1.0;
+    private Thread simulation;
+    private volatile boolean running;
+
+    // El EDT apunta las transiciones de tecla en la cola y el hilo de simulacion las consume en cada tick
+    private final InputRing inputRing = new InputRing(INPUT_RING_CAPACITY);
+    private final InputSampler inputSampler = new InputSampler(inputRing);
+    private final boolean[] keyDown = new boolean[3];
+    private volatile boolean paused;
+    private final AtomicBoolean resetRequested = new AtomicBoolean();
+    private final AtomicBoolean loopResetRequested = new AtomicBoolean();
+    private InputRecording recording;
+    private String recordingFile;
+    // Cada hilo mide con su perfilador: el de la simulacion lo usa el motor y el otro el EDT
+    private final FrameProfiler simulationProfiler = new FrameProfiler();
+    private final FrameProfiler paintProfiler = new FrameProfiler();
+    private volatile boolean profileVisible;
+    // Con -Dmalaga.profile=prefijo se vuelcan las medidas al salir (ver shutdown)
+    private final String profileFile = System.getProperty("malaga.profile");
+    private long reportNanos;
+    private long reportTicks;
 
-        setFocusable(true);
-        requestFocusInWindow();
+    public GamePanel() {
+        this(new GameEngine());
+    }
 
-        initializeEnemies();
+    public GamePanel(GameEngine engine) {
+        this(engine, new AssetManager(SpriteAtlas.defaultConfiguration()));
+    }
 
-        gameTimer = new Timer(10, this::gameLoop);
-        gameTimer.start();
+    public GamePanel(GameEngine engine, AssetManager assets) {
+        this(engine, "passive".equalsIgnoreCase(System.getProperty("malaga.render")) ? RenderMode.PASSIVE : RenderMode.ACTIVE,
+                assets);
+    }
 
-        shootTimer = new Timer(500, e -> canShoot = true);
+    // El bucle sigue el paso del motor (ver GameEngine.tickMillisFromSystemProperty)
+    public GamePanel(GameEngine engine, RenderMode renderMode, AssetManager assets) {
+        this.engine = engine;
+        this.loop = new FixedStepLoop(1000 / engine.getTickMillis(), MAX_CATCH_UP_TICKS);
+        this.assets = assets;
+        setPreferredSize(new Dimension(GAME_WIDTH, GAME_HEIGHT));
+        setLayout(new BorderLayout());
 
-        enemyShootTimer = new Timer(ENEMY_SHOOT_INTERVAL, e -> {
-            if (level > 1 && level != 5) {
-                shootEnemyProjectiles();
-            }
-        });
-        enemyShootTimer.start();
+        setFocusable(true);
+        requestFocusInWindow();
 
-        camicaseSpawnTimer = new Timer(CAMICASE_SPAWN_INTERVAL, e -> {
-            if (level >= 3 && level != 5) {
-                spawnCamicase();
+        // La simulacion avanza en su propio hilo; el timer del EDT solo pinta el ultimo snapshot publicado.
+        // Con interpolacion se pinta a la frecuencia de la pantalla aunque no haya tick nuevo.
+        frameTimer = new Timer(frameMillis(), e -> {
+            if (renderer != null && (snapshots.update() || interpolate)) {
+                renderFrame();
+                recordInputLatency();
             }
         });
-        camicaseSpawnTimer.start();
+        frameTimer.start();
 
-        addKeyListener(new KeyAdapter() {
+        KeyAdapter keyHandler = new KeyAdapter() {
             @Override
             public void keyPressed(KeyEvent e) {
-                if (gameOver) {
+                int gameKey = gameKey(e.getKeyCode());
+                if (gameKey != -1) {
+                    keyTransition(gameKey, true);
+                } else if (e.getKeyCode() == KeyEvent.VK_F3) {
+                    toggleProfileOverlay();
+                } else if (snapshots.front().isGameOver()) {
                     if (e.getKeyCode() == KeyEvent.VK_ENTER) {
                         resetGame();
                     } else if (e.getKeyCode() == KeyEvent.VK_ESCAPE) {
+                        shutdown();
                         System.exit(0); // Sale del juego si se presiona ESC
                     }
-                } else {
-                    int key = e.getKeyCode();
-                    if (key == KeyEvent.VK_LEFT) moveDirection = -5;
-                    else if (key == KeyEvent.VK_RIGHT) moveDirection = 5;
-                    else if (key == KeyEvent.VK_SPACE) isShooting = true;
+                } else if (e.getKeyCode() == KeyEvent.VK_P) {
+                    togglePause();
                 }
             }
 
             @Override
             public void keyReleased(KeyEvent e) {
-                int key = e.getKeyCode();
-                if (!gameOver) {
-                    if (key == KeyEvent.VK_LEFT && moveDirection == -5 ||
-                        key == KeyEvent.VK_RIGHT && moveDirection == 5) moveDirection = 0;
-                    else if (key == KeyEvent.VK_SPACE) isShooting = false;
+                int gameKey = gameKey(e.getKeyCode());
+                if (gameKey != -1) {
+                    keyTransition(gameKey, false);
                 }
             }
-        });
+        };
+        addKeyListener(keyHandler);
 
-        immunityTimer = new Timer(1500, e -> {
-            isPlayerImmune = false;
-            blinkTimer.stop();
-            isPlayerVisible = true;
-        });
-
-        immunityTimer.setRepeats(false);
-
-        blinkTimer = new Timer(100, e -> isPlayerVisible = !isPlayerVisible);
-
-        backgroundImage = new ImageIcon(getClass().getClassLoader().getResource("resources/bg.gif"));
-        bulletImage = new ImageIcon(getClass().getClassLoader().getResource("resources/bullet.png"));
-        playerImage = new ImageIcon(getClass().getClassLoader().getResource("resources/player.png"));
-        enemyImage = new ImageIcon(getClass().getClassLoader().getResource("resources/enemigoVioleta.png"));
-        enemyBulletImage = new ImageIcon(getClass().getClassLoader().getResource("resources/enemy_bullet.png"));
-        camicaseImage = new ImageIcon(getClass().getClassLoader().getResource("resources/camicase.PNG"));
-        corazonImage = new ImageIcon(getClass().getClassLoader().getResource("resources/corazon.png"));
-        explosionImage = new ImageIcon(getClass().getClassLoader().getResource("resources/explosion.gif"));
-        bossImage = new ImageIcon(getClass().getClassLoader().getResource("resources/boss.png"));
-    }
-
-    private void initializeEnemies() {
-        enemies.clear();
-        camicases.clear();
-
-        if (level == 5) {
-            initializeBossEnemy();
-        } else {
-            int rows = level == 1 ? 3 : (level == 2 ? 4 : 4);
-            int cols = level == 1 ? 6 : (level == 2 ? 5 : 6);
-
-            int xOffset = 10;
-            int yOffset = 40;
-
-            for (int row = 0; row < rows; row++) {
-                for (int col = 0; col < cols; col++) {
-                    int x = xOffset + col * (ENEMY_SIZE + 10);
-                    int y = yOffset + row * (ENEMY_SIZE + 10);
-                    enemies.add(new Enemy(x, y, ENEMY_SIZE, ENEMY_SIZE));
-                }
-            }
+        if (renderMode == RenderMode.ACTIVE && !GraphicsEnvironment.isHeadless()) {
+            canvas = new GameCanvas();
+            canvas.setBackground(getBackground());
+            canvas.addKeyListener(keyHandler);
+            add(canvas, BorderLayout.CENTER);
         }
-    }
-
-    private void initializeBossEnemy() {
-        int bossX = (GAME_WIDTH - ENEMY_WIDTH) / 2;
-        int bossY = 50;
-        bossEnemy = new BossEnemy(bossX, bossY, ENEMY_WIDTH, ENEMY_HEIGHT, ENEMY_SPEED);
-
-        bossMoveTimer = new Timer(BOSS_MOVE_INTERVAL, e -> moveBossEnemy());
-        bossMoveTimer.start();
 
-        bossShootTimer = new Timer(BOSS_SHOOT_INTERVAL, e -> shootEnemyProjectiles());
-        bossShootTimer.start();
-    }
-
-    private void moveSquare(int dx) {
-        squareX += dx;
-        squareX = Math.max(0, Math.min(squareX, GAME_WIDTH - SQUARE_SIZE));
-        repaint();
-    }
-
-    private void shootProjectile() {
-        if (canShoot) {
-            int projectileX = squareX + (SQUARE_SIZE - PROJECTILE_SIZE) / 2;
-            int projectileY = SQUARE_Y_POSITION;
-            projectiles.add(new Rectangle(projectileX, projectileY, PROJECTILE_SIZE, PROJECTILE_SIZE));
-            canShoot = false;
-            shootTimer.restart();
+        // Con -Dmalaga.record=fichero se graba la partida para reproducirla con Replayer
+        recordingFile = System.getProperty("malaga.record");
+        if (recordingFile != null) {
+            recording = InputRecording.of(engine);
         }
-    }
 
-    private void shootEnemyProjectiles() {
-        if (level == 5 && bossEnemy != null) {
-            int projectileX = bossEnemy.x + (ENEMY_WIDTH - PROJECTILE_SIZE) / 2;
-            int projectileY = bossEnemy.y + ENEMY_HEIGHT;
-            enemyProjectiles.add(new Rectangle(projectileX, projectileY, PROJECTILE_SIZE, PROJECTILE_SIZE));
-        } else {
-            for (Enemy enemy : enemies) {
-                if (random.nextInt(100) < ENEMY_SHOOT_PROBABILITY) {
-                    int projectileX = enemy.x + (ENEMY_SIZE - PROJECTILE_SIZE) / 2;
-                    int projectileY = enemy.y + ENEMY_SIZE;
-                    enemyProjectiles.add(new Rectangle(projectileX, projectileY, PROJECTILE_SIZE, PROJECTILE_SIZE));
-                }
-            }
-        }
-    }
-
-    private void spawnCamicase() {
-        if (camicases.size() < 5) {
-            int camicaseX = random.nextInt(GAME_WIDTH - ENEMY_SIZE);
-            int camicaseY = -ENEMY_SIZE;
-            camicases.add(new Camicase(camicaseX, camicaseY, ENEMY_SIZE, ENEMY_SIZE));
-        }
-    }
-
-    private void updateProjectiles() {
-        projectiles.removeIf(projectile -> {
-            projectile.y -= PROJECTILE_SPEED;
-            return projectile.y + PROJECTILE_SIZE < 0;
-        });
-    }
-
-    private void updateEnemyProjectiles() {
-        enemyProjectiles.removeIf(projectile -> {
-            projectile.y += PROJECTILE_SPEED;
-            return projectile.y > GAME_HEIGHT;
-        });
-    }
-
-    private void updateEnemies() {
-        boolean hitEdge = false;
-
-        for (Enemy enemy : enemies) {
-            enemy.x += enemyDirection;
-            if (enemy.x <= 0 || enemy.x + ENEMY_SIZE >= GAME_WIDTH) hitEdge = true;
-        }
-
-        if (hitEdge) {
-            enemyDropCounter++;
-            enemyDirection = -enemyDirection;
-
-            if (enemyDropCounter >= ENEMY_DROP_THRESHOLD) {
-                for (Enemy enemy : enemies) {
-                    if (enemy.y + ENEMY_DROP_DISTANCE <= MAX_ENEMY_Y) {
-                        enemy.y += ENEMY_DROP_DISTANCE;
-                    } else {
-                        enemy.y = MAX_ENEMY_Y;
+        // El atlas se monta en el hilo que termina de decodificar; la partida empieza al tenerlo
+        assets.ready()
+                .thenApply(v -> new GameRenderer(assets))
+                .whenComplete((loaded, error) -> SwingUtilities.invokeLater(() -> {
+                    if (error != null) {
+                        System.err.println("No se pudieron cargar los recursos: " + error.getMessage());
+                        return;
                     }
-                }
-                enemyDropCounter = 0;
-            }
-        }
-
-        repaint();
+                    renderer = loaded;
+                    renderer.setOverlay(profileVisible ? paintProfiler : null);
+                    startSimulation();
+                }));
     }
 
-    private void updateCamicases() {
-        List<Camicase> camicasesToRemove = new ArrayList<>();
-        for (Camicase camicase : camicases) {
-            camicase.y += CAMICASE_SPEED;
-            if (camicase.y > GAME_HEIGHT) {
-                camicasesToRemove.add(camicase);
-            }
-        }
-        camicases.removeAll(camicasesToRemove);
+    private void startSimulation() {
+        running = true;
+        simulation = new Thread(this::simulate, "simulacion");
+        simulation.setDaemon(true);
+        simulation.start();
     }
 
-    private void checkCollisions() {
-        
-        Iterator<Rectangle> projectileIterator = projectiles.iterator();
-        while (projectileIterator.hasNext()) {
-            Rectangle projectile = projectileIterator.next();
-
-            
-            Iterator<Camicase> camicaseIterator = camicases.iterator();
-            while (camicaseIterator.hasNext()) {
-                Camicase camicase = camicaseIterator.next();
-                Rectangle camicaseBounds = new Rectangle(camicase.x, camicase.y, camicase.width, camicase.height);
-
-                if (projectile.intersects(camicaseBounds)) {
-                    camicase.hit();
-                    projectileIterator.remove(); 
-                    if (camicase.isDestroyed()) {
-                        camicaseIterator.remove(); 
-                    }
-                    break; 
-                }
+    // Bucle del hilo de simulacion: avanza los ticks que tocan, publica un snapshot y duerme
+    // hasta el siguiente tick. Un pintado lento ya no retrasa la simulacion ni al reves.
+    private void simulate() {
+        snapshots.publish(engine, 1.0, 0, 0, null);
+        while (running) {
+            if (paused) {
+                LockSupport.parkNanos(PAUSE_POLL_NANOS);
+                continue;
             }
-
-            // Colisiones con enemigos
-            Iterator<Enemy> enemyIterator = enemies.iterator();
-            while (enemyIterator.hasNext()) {
-                Enemy enemy = enemyIterator.next();
-                Rectangle enemyBounds = new Rectangle(enemy.x, enemy.y, enemy.width, enemy.height);
-
-                if (projectile.intersects(enemyBounds)) {
-                    enemy.hit();
-                    projectileIterator.remove(); 
-                    if (enemy.isDestroyed()) {
-                        enemyIterator.remove(); 
-                    }
-                    break; 
-                }
+            if (loopResetRequested.getAndSet(false)) {
+                loop.reset();
             }
-        }
-
-        // Verificamos las colisiones entre proyectiles enemigos y el jugador
-        Iterator<Rectangle> enemyProjectileIterator = enemyProjectiles.iterator();
-        while (enemyProjectileIterator.hasNext()) {
-            Rectangle projectile = enemyProjectileIterator.next();
-            Rectangle playerBounds = new Rectangle(squareX, SQUARE_Y_POSITION, SQUARE_SIZE, SQUARE_SIZE);
-
-            if (projectile.intersects(playerBounds)) {
-                enemyProjectileIterator.remove(); 
-                loseLife();
-
-                if (lives <= 0) {
-                    gameOver(); 
-                    return;
-                } else {
-                    startPlayerImmunity(); 
+            // Medir cuesta en cada tick (relojes y bytes reservados por el hilo): el motor solo lleva
+            // el perfilador si se van a volcar las medidas o se esta viendo el overlay
+            engine.setProfiler(profileFile != null || profileVisible ? simulationProfiler : null);
+            int steps = loop.advance(System.nanoTime());
+            for (int i = 0; i < steps; i++) {
+                if (i == steps - 1) {
+                    snapshots.capturePrevious(engine);
                 }
-            }
-        }
-
-       
-        Iterator<Camicase> camicaseIterator = camicases.iterator();
-        while (camicaseIterator.hasNext()) {
-            Camicase camicase = camicaseIterator.next();
-            Rectangle camicaseBounds = new Rectangle(camicase.x, camicase.y, camicase.width, camicase.height);
-            Rectangle playerBounds = new Rectangle(squareX, SQUARE_Y_POSITION, SQUARE_SIZE, SQUARE_SIZE);
-
-            if (camicaseBounds.intersects(playerBounds)) {
-                camicase.hit();
-                if (camicase.isDestroyed()) {
-                    camicaseIterator.remove(); 
-                }
-                loseLife();
-
-                if (lives <= 0) {
-                    gameOver(); 
-                    return;
+                int input = currentInput();
+                if (recording != null) {
+                    recording.record(input);
                 }
+                engine.step(input);
             }
-        }
-
-        
-        Iterator<Enemy> enemyIterator = enemies.iterator();
-        while (enemyIterator.hasNext()) {
-            Enemy enemy = enemyIterator.next();
-            Rectangle enemyBounds = new Rectangle(enemy.x, enemy.y, enemy.width, enemy.height);
-            Rectangle playerBounds = new Rectangle(squareX, SQUARE_Y_POSITION, SQUARE_SIZE, SQUARE_SIZE);
-
-            if (playerBounds.intersects(enemyBounds)) {
-                enemyIterator.remove(); 
-                loseLife();
-
-                if (lives <= 0) {
-                    gameOver(); 
-                    return;
-                }
+            if (steps > 0) {
+                snapshots.publish(engine, loop.alpha(), loop.getStepNanos(), inputSampler.takeEventNanos(),
+                        profileVisible ? simulationProfiler.overlayLines() : null);
             }
-        }
-
-        
-        if (enemies.isEmpty() && level != 5) {
-            nextLevel();
-        }
-
-        
-        if (level >= 4) {
-            for (Camicase camicase : camicases) {
-                camicase.shootLaser(enemyProjectiles);
+            if (engine.getPreset() != WavePreset.CAMPAIGN) {
+                reportThroughput();
             }
-        }
-
-        
-        if (level == 5 && bossEnemy != null) {
-            checkCollisionsWithBoss();
+            LockSupport.parkNanos((long) ((1.0 - loop.alpha()) * loop.getStepNanos()));
         }
     }
 
-
-    private void checkCollisionsWithBoss() {
-        if (bossEnemy != null) {
-            for (int i = 0; i < projectiles.size(); i++) {
-                Rectangle projectile = projectiles.get(i);
-                if (projectile.intersects(bossEnemy)) {
-                    projectiles.remove(i);
-                    i--;
-                    bossEnemy.health--;
-                    if (bossEnemy.health <= 0) {
-                        bossEnemy = null;
-                        hasWon = true;
-                        gameOver = true;
-                        break;
-                    }
-                }
-            }
-
-            for (int i = 0; i < enemyProjectiles.size(); i++) {
-                Rectangle projectile = enemyProjectiles.get(i);
-                if (projectile.intersects(new Rectangle(squareX, SQUARE_Y_POSITION, SQUARE_SIZE, SQUARE_SIZE))) {
-                    enemyProjectiles.remove(i);
-                    i--;
-                    loseLife();
-                }
+    // Espera sin limite a que el hilo de simulacion salga de su bucle, que como mucho acaba la tanda
+    // de ticks en curso: despues solo este hilo toca el motor, la grabacion y el perfilador de la
+    // simulacion. Devuelve false si se interrumpe la espera y el hilo puede seguir vivo.
+    private boolean stopSimulation() {
+        running = false;
+        if (simulation != null) {
+            LockSupport.unpark(simulation);
+            try {
+                simulation.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
             }
         }
+        return true;
     }
 
-    private void triggerExplosion(int x, int y) {
-        isExploding = true;
-        explosionX = x;
-        explosionY = y;
-
-        Timer explosionTimer = new Timer(300, new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                isExploding = false;
-            }
-        });
-        explosionTimer.setRepeats(false);
-        explosionTimer.start();
+    public GameEngine getEngine() {
+        return engine;
     }
 
-    private void loseLife() {
-        lives--;
-        if (lives <= 0) {
-            gameOver();
-            triggerExplosion(squareX, SQUARE_Y_POSITION);
-        } else {
-            startPlayerImmunity();
+    private static int gameKey(int keyCode) {
+        switch (keyCode) {
+            case KeyEvent.VK_LEFT:
+                return InputRing.KEY_LEFT;
+            case KeyEvent.VK_RIGHT:
+                return InputRing.KEY_RIGHT;
+            case KeyEvent.VK_SPACE:
+                return InputRing.KEY_FIRE;
+            default:
+                return -1;
         }
     }
 
-    private void startPlayerImmunity() {
-        isPlayerImmune = true;
-        immunityTimer.restart();
-        blinkTimer.start();
-    }
-
-    private void nextLevel() {
-        level++;
-
-  
-        initializeEnemies();
-
-        repaint();
-    }
-
-
-    private void gameOver() {
-        level = 1;
-        gameOver = true;
-        gameTimer.stop();
-        shootTimer.stop();
-        enemyShootTimer.stop();
-        camicaseSpawnTimer.stop();
-        if (bossMoveTimer != null) {
-            bossMoveTimer.stop();
-        }
-        if (bossShootTimer != null) {
-            bossShootTimer.stop();
+    // Solo se encolan cambios reales: la autorepeticion del teclado repite keyPressed sin soltar.
+    private void keyTransition(int gameKey, boolean pressed) {
+        if (keyDown[gameKey] != pressed) {
+            keyDown[gameKey] = pressed;
+            inputRing.offer(gameKey, pressed, System.nanoTime());
         }
-        projectiles.clear();
-        enemyProjectiles.clear();
-        camicases.clear();
-        enemies.clear();
-        showPlayer = false;
-        repaint();
     }
 
-    private void resetGame() {
-        gameOver = false;
-        hasWon = false;
-        level = 1;  
-        lives = 3;  
-        squareX = (GAME_WIDTH - SQUARE_SIZE) / 2;  
-        moveDirection = 0;
-        canShoot = true;
-        showPlayer = true;
-
-        projectiles.clear();
-        enemies.clear();
-        enemyProjectiles.clear();
-        camicases.clear();
-
-        isExploding = false;
-        isPlayerVisible = true;
-        isPlayerImmune = false;
-
-        gameTimer.stop();
-        shootTimer.stop();
-        enemyShootTimer.stop();
-        camicaseSpawnTimer.stop();
-
-        if (bossMoveTimer != null) {
-            bossMoveTimer.stop();
-        }
-        if (bossShootTimer != null) {
-            bossShootTimer.stop();
-        }
-
-        gameTimer.start();
-        shootTimer.start();
-        enemyShootTimer.start();
-        camicaseSpawnTimer.start();
-
-        initializeEnemies();
-
-        repaint();  
+    private int currentInput() {
+        int input = inputSampler.nextTick();
+        if (resetRequested.getAndSet(false)) input |= GameEngine.INPUT_RESET;
+        return input;
     }
-    
-    private void gameLoop(ActionEvent e) {
-        if (!gameOver) {
-            moveSquare(moveDirection);
-            if (isShooting) shootProjectile();
-            updateProjectiles();
-            updateEnemyProjectiles();
-            updateEnemies();
-            updateCamicases();
-            checkCollisions();
-
-            if (level == 5 && bossEnemy != null) {
-                moveBossEnemy();
-            }
 
-            repaint();
-        }
+    // El reinicio se aplica en el siguiente tick, como cualquier otra entrada
+    private void resetGame() {
+        resetRequested.set(true);
     }
 
-
-    private void moveBossEnemy() {
-        if (bossEnemy != null) {
-            if (bossEnemy.health <= ENEMY_HEALTH / 2 && !bossEnemy.hasMovedToMid) {
-                bossEnemy.y += bossEnemy.speed;
-                if (bossEnemy.y > GAME_HEIGHT / 2 - bossEnemy.height / 2) {
-                    bossEnemy.y = GAME_HEIGHT / 2 - bossEnemy.height / 2;
-                    bossEnemy.hasMovedToMid = true;
-
-                    
-                    bossShootTimer.setDelay(BOSS_FAST_SHOOT_INTERVAL);
-                }
+    // Se llama al salir del juego: guarda la grabacion en curso y, con -Dmalaga.profile=prefijo,
+    // vuelca las medidas de rendimiento en prefijo.csv y prefijo.json.
+    public void shutdown() {
+        if (!stopSimulation()) {
+            System.err.println("La simulacion no se detuvo: no se guardan la grabacion ni las medidas");
+            return;
+        }
+        saveRecording();
+        if (profileFile != null) {
+            try {
+                simulationProfiler.addAll(paintProfiler);
+                simulationProfiler.writeCsv(Paths.get(profileFile + ".csv"));
+                simulationProfiler.writeJson(Paths.get(profileFile + ".json"));
+                System.out.println("Medidas de rendimiento guardadas en " + profileFile + ".csv/.json");
+            } catch (IOException e) {
+                System.err.println("No se pudieron guardar las medidas: " + e.getMessage());
             }
-
-            bossEnemy.x += bossEnemy.direction * ENEMY_SPEED;
-            if (bossEnemy.x <= 0 || bossEnemy.x + ENEMY_WIDTH >= GAME_WIDTH) {
-                bossEnemy.direction *= -1;
-            }
-            repaint();
         }
     }
 
-    @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-
-        g.drawImage(backgroundImage.getImage(), 0, 0, GAME_WIDTH, GAME_HEIGHT, this);
-
-        if (isPlayerVisible && showPlayer) {
-            g.drawImage(playerImage.getImage(), squareX, SQUARE_Y_POSITION, SQUARE_SIZE, SQUARE_SIZE, this);
-        }
-
-        if (isExploding) {
-            g.drawImage(explosionImage.getImage(), explosionX, explosionY, SQUARE_SIZE, SQUARE_SIZE, this);
-        }
-
-        for (Rectangle projectile : projectiles) {
-            g.drawImage(bulletImage.getImage(), projectile.x, projectile.y, projectile.width, projectile.height, this);
-        }
-
-        for (Enemy enemy : enemies) {
-            g.drawImage(enemyImage.getImage(), enemy.x, enemy.y, enemy.width, enemy.height, this);
-        }
-
-        for (Rectangle projectile : enemyProjectiles) {
-            g.drawImage(enemyBulletImage.getImage(), projectile.x, projectile.y, projectile.width, projectile.height, this);
-        }
-
-        for (Camicase camicase : camicases) {
-            g.drawImage(camicaseImage.getImage(), camicase.x, camicase.y, camicase.width, camicase.height, this);
-        }
-
-        for (int i = 0; i < lives; i++) {
-            int heartX = 10 + i * 40;
-            int heartY = 10;
-            g.drawImage(corazonImage.getImage(), heartX, heartY, 30, 30, null);
+    private void saveRecording() {
+        if (recording == null) {
+            return;
         }
-
-        if (level == 5 && bossEnemy != null) {
-            g.drawImage(bossImage.getImage(), bossEnemy.x, bossEnemy.y, bossEnemy.width, bossEnemy.height, this);
+        try {
+            recording.save(Paths.get(recordingFile), engine.stateHash());
+            System.out.println("Partida grabada en " + recordingFile + " (" + recording.getTicks() + " ticks)");
+        } catch (IOException e) {
+            System.err.println("No se pudo guardar la grabacion: " + e.getMessage());
         }
+        recording = null;
+    }
 
-        if (gameOver) {
-            Graphics2D g2d = (Graphics2D) g.create();
-            g2d.setColor(new Color(0, 0, 0, 150));
-            g2d.fillRect(0, 0, getWidth(), getHeight());
-
-            g2d.setColor(Color.WHITE);
-            g2d.setFont(new Font("Arial", Font.BOLD, 30));
-            FontMetrics fm = g2d.getFontMetrics();
-            String message = hasWon ? "¡HAS GANADO!" : "¡Has Perdido!";
-            int x = (getWidth() - fm.stringWidth(message)) / 2;
-            int y = getHeight() / 2;
-            g2d.drawString(message, x, y);
-
-            String restartMessage = "Presiona Enter para reiniciar";
-            String exitMessage = "o ESC para salir";
-            x = (20 + getWidth() - fm.stringWidth(restartMessage)) / 4;
-            y += fm.getHeight() + 20;
-            g2d.drawString(restartMessage, x, y);
-
-            y += fm.getHeight() + 10;
-            g2d.drawString(exitMessage, x, y);
-
-            g2d.dispose();
+    private void toggleProfileOverlay() {
+        profileVisible = !profileVisible;
+        if (renderer != null) {
+            renderer.setOverlay(profileVisible ? paintProfiler : null);
+            renderFrame();
         }
     }
 
-    private static class Enemy {
-        int x, y, width, height;
-        int hitsToDestroy;
+    // Todo el ritmo del juego sale del contador de ticks, asi que basta con dejar de avanzarlo.
+    private void togglePause() {
+        loopResetRequested.set(true);
+        paused = !paused;
+    }
 
-        public Enemy(int x, int y, int width, int height) {
-            this.x = x;
-            this.y = y;
-            this.width = width;
-            this.height = height;
-        }
+    // Con los presets de estres se informa cada pocos segundos de si el tick rate se sostiene.
+    private void reportThroughput() {
+        long now = System.nanoTime();
+        if (reportNanos == 0) {
+            reportNanos = now;
+            reportTicks = loop.getTotalTicks();
+            return;
+        }
+        if (now - reportNanos < THROUGHPUT_REPORT_NANOS) {
+            return;
+        }
+        double seconds = (now - reportNanos) / 1e9;
+        System.out.printf("%s: %.0f ticks/s de %d, %d ticks descartados, enemigos=%d proyectiles=%d camicases=%d%n",
+                engine.getPreset(), (loop.getTotalTicks() - reportTicks) / seconds, loop.getTicksPerSecond(),
+                loop.getDroppedTicks(), engine.getEnemies().size(),
+                engine.getProjectiles().size() + engine.getEnemyProjectiles().size(), engine.getCamicases().size());
+        reportNanos = now;
+        reportTicks = loop.getTotalTicks();
+    }
 
-        public void hit() {
-            hitsToDestroy--;
+    // El primer frame pintado con un snapshot que aplico teclas nuevas cierra su medida de latencia.
+    // En modo pasivo el pintado real lo hace Swing un poco despues, asi que la medida se queda corta.
+    private void recordInputLatency() {
+        RenderSnapshot shown = snapshots.front();
+        if (shown.inputNanos != 0) {
+            paintProfiler.record(FrameProfiler.INPUT_LATENCY, System.nanoTime() - shown.inputNanos);
+            shown.inputNanos = 0;
         }
+    }
 
-        public boolean isDestroyed() {
-            return hitsToDestroy <= 0;
+    // Periodo del timer de pintado: el de refresco de la pantalla si se conoce (6 ms a 144 Hz).
+    private static int frameMillis() {
+        if (!GraphicsEnvironment.isHeadless()) {
+            int refreshRate = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                    .getDisplayMode().getRefreshRate();
+            if (refreshRate != DisplayMode.REFRESH_RATE_UNKNOWN) {
+                return Math.max(1, 1000 / refreshRate);
+            }
         }
+        return FRAME_MILLIS;
     }
 
-    private static class Camicase extends Enemy {
+    public RenderMode getRenderMode() {
+        return canvas != null ? RenderMode.ACTIVE : RenderMode.PASSIVE;
+    }
 
-        public Camicase(int x, int y, int width, int height) {
-            super(x, y, width, height);
+    // Un unico frame por pasada: en modo activo se dibuja directamente, en pasivo se delega en Swing.
+    private void renderFrame() {
+        if (renderer == null) {
+            return;
+        }
+        if (!firstFrameRendered) {
+            firstFrameRendered = true;
+            assets.mark("primer frame");
+            assets.printReport();
+        }
+        frameAlpha = interpolate ? snapshots.front().alphaAt(System.nanoTime()) : 1.0;
+        if (canvas != null) {
+            try {
+                paintProfiler.begin(FrameProfiler.PAINT);
+                canvas.render(renderer, snapshots.front(), frameAlpha);
+                paintProfiler.end(FrameProfiler.PAINT);
+            } catch (IllegalStateException | AWTError e) {
+                System.out.println("Renderizado activo no disponible, se usa el pintado de Swing: " + e.getMessage());
+                remove(canvas);
+                canvas = null;
+                revalidate();
+                repaint();
+            }
+        } else {
+            repaint();
         }
+    }
 
-        public void shootLaser(List<Rectangle> enemyProjectiles) {
-            int laserWidth = PROJECTILE_SIZE;
-            int laserHeight = 2 * PROJECTILE_SIZE;
-
-            int projectileX1 = x + (width - laserWidth) / 2 - 10;
-            int projectileX2 = x + (width - laserWidth) / 2 + 10;
-            int projectileY = y + height;
-
-            Rectangle laser1 = new Rectangle(projectileX1, projectileY, laserWidth, laserHeight);
-            Rectangle laser2 = new Rectangle(projectileX2, projectileY, laserWidth, laserHeight);
-
-            enemyProjectiles.add(laser1);
-            enemyProjectiles.add(laser2);
+    @Override
+    public void setBackground(Color bg) {
+        super.setBackground(bg);
+        if (canvas != null) {
+            canvas.setBackground(bg);
         }
     }
 
-    private static class BossEnemy extends Rectangle {
-        private static final long serialVersionUID = 1L;
-        private int health;
-        private int speed;
-        private int direction = 1;
-        private boolean hasMovedToMid = false;
-
-        public BossEnemy(int x, int y, int width, int height, int speed) {
-            super(x, y, width, height);
-            this.health = ENEMY_HEALTH;
-            this.speed = speed;
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        if (canvas == null && renderer != null) {
+            paintProfiler.begin(FrameProfiler.PAINT);
+            renderer.render(g, snapshots.front(), frameAlpha, getWidth(), getHeight());
+            paintProfiler.end(FrameProfiler.PAINT);
         }
     }
 }
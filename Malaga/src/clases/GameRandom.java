@@ -0,0 +1,48 @@
+package clases;
+
+// Generador congruencial lineal identico a java.util.Random (mismas constantes y mismos
+// resultados para la misma semilla), pero con el estado accesible para poder guardarlo y
+// restaurarlo en un StateBuffer. Las partidas grabadas con Random se reproducen igual.
+public class GameRandom {
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    private long state;
+
+    public GameRandom(long seed) {
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    private int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound debe ser positivo: " + bound);
+        }
+        int r = next(31);
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            return (int) ((bound * (long) r) >> 31);
+        }
+        for (int u = r; u - (r = u % bound) + m < 0; u = next(31)) {
+            // se descartan los valores del ultimo tramo incompleto para no sesgar el resultado
+        }
+        return r;
+    }
+
+    public double nextDouble() {
+        return (((long) next(26) << 27) + next(27)) * 0x1.0p-53;
+    }
+
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state & MASK;
+    }
+}
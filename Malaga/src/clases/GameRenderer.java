@@ -0,0 +1,287 @@
+package clases;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+// Dibuja un frame completo del estado del motor. Lo usan tanto el pintado pasivo de Swing
+// (GamePanel.paintComponent) como el renderizado activo con BufferStrategy (GameCanvas).
+public class GameRenderer {
+    private static final int SQUARE_SIZE = GameEngine.SQUARE_SIZE;
+    private static final int GAME_WIDTH = GameEngine.GAME_WIDTH;
+    private static final int GAME_HEIGHT = GameEngine.GAME_HEIGHT;
+    private static final int SQUARE_Y_POSITION = GameEngine.SQUARE_Y_POSITION;
+
+    private static final int PROJECTILE_SIZE = GameEngine.PROJECTILE_SIZE;
+    private static final int ENEMY_SIZE = GameEngine.ENEMY_SIZE;
+    private static final int HEART_SIZE = 30;
+    private static final int MAX_EXPLOSION_SIZE = 256;
+
+    private final FrameAnimation backgroundAnimation;
+    private final FrameAnimation explosionAnimation;
+    // Explosiones ya escaladas por tamano en pixeles; escalar al dibujar es unas tres veces mas lento
+    private final FrameAnimation[] explosionBySize = new FrameAnimation[MAX_EXPLOSION_SIZE + 1];
+
+    private final GraphicsConfiguration configuration;
+    private final SpriteAtlas atlas;
+    private final SpriteAtlas.Sprite playerSprite;
+    private final SpriteAtlas.Sprite bulletSprite;
+    private final SpriteAtlas.Sprite enemySprite;
+    private final SpriteAtlas.Sprite enemyBulletSprite;
+    private final SpriteAtlas.Sprite laserSprite;
+    private final SpriteAtlas.Sprite camicaseSprite;
+    private final SpriteAtlas.Sprite corazonSprite;
+    private final SpriteAtlas.Sprite bossSprite;
+
+    // Colores de chispas y restos, por indice de ParticleSystem.COLOR_*
+    private static final Color[] PARTICLE_PALETTE = {
+            new Color(0xB07CFF), new Color(0xFF9A3C), new Color(0xFF4A3A), new Color(0xFFE27A)
+    };
+
+    private final Font overlayFont = new Font(Font.MONOSPACED, Font.PLAIN, 11);
+    private final Color overlayShade = new Color(0, 0, 0, 170);
+    private final Font messageFont = new Font("Arial", Font.BOLD, 30);
+    private final Color gameOverShade = new Color(0, 0, 0, 150);
+
+    // Capas que solo cambian con sus datos (vidas, fin de partida): se pintan una vez
+    // en una imagen y cada frame es un solo drawImage hasta que cambian
+    private BufferedImage heartsLayer;
+    private int heartsLives = -1;
+    private BufferedImage gameOverLayer;
+    private boolean gameOverWon;
+
+    private FrameProfiler overlay;
+    private RenderSnapshot scratch;
+
+    public GameRenderer() {
+        this(new AssetManager(SpriteAtlas.defaultConfiguration()).preload());
+    }
+
+    // Espera a que el AssetManager haya decodificado lo necesario; solo queda escalar y empaquetar.
+    public GameRenderer(AssetManager assets) {
+        backgroundAnimation = assets.animation(AssetManager.BACKGROUND);
+        explosionAnimation = assets.animation(AssetManager.EXPLOSION);
+        explosionBySize[SQUARE_SIZE] = explosionAnimation;
+
+        configuration = assets.getConfiguration();
+        atlas = new SpriteAtlas(configuration);
+        playerSprite = atlas.add(assets.image("resources/player.png"), SQUARE_SIZE, SQUARE_SIZE);
+        bulletSprite = atlas.add(assets.image("resources/bullet.png"), PROJECTILE_SIZE, PROJECTILE_SIZE);
+        enemySprite = atlas.add(assets.image("resources/enemigoVioleta.png"), ENEMY_SIZE, ENEMY_SIZE);
+        BufferedImage enemyBullet = assets.image("resources/enemy_bullet.png");
+        enemyBulletSprite = atlas.add(enemyBullet, PROJECTILE_SIZE, PROJECTILE_SIZE);
+        laserSprite = atlas.add(enemyBullet, PROJECTILE_SIZE, 2 * PROJECTILE_SIZE);
+        camicaseSprite = atlas.add(assets.image("resources/camicase.png"), ENEMY_SIZE, ENEMY_SIZE);
+        corazonSprite = atlas.add(assets.image("resources/corazon.png"), HEART_SIZE, HEART_SIZE);
+        bossSprite = atlas.add(assets.image("resources/boss.png"), GameEngine.ENEMY_WIDTH, GameEngine.ENEMY_HEIGHT);
+        atlas.pack();
+    }
+
+    // Dibuja el estado actual del motor; solo si el motor no avanza en otro hilo a la vez.
+    public void render(Graphics g, GameEngine engine, int width, int height) {
+        if (scratch == null) {
+            scratch = new RenderSnapshot();
+        }
+        scratch.capture(engine);
+        render(g, scratch, width, height);
+    }
+
+    public void render(Graphics g, RenderSnapshot state, int width, int height) {
+        render(g, state, 1.0, width, height);
+    }
+
+    // alpha interpola entre el tick anterior (0) y el del snapshot (1). Todo lo que se mueve a
+    // velocidad constante se retrasa (1 - alpha) ticks de movimiento, salvo lo creado en el ultimo tick.
+    public void render(Graphics g, RenderSnapshot state, double alpha, int width, int height) {
+        double lag = 1.0 - alpha;
+        double lagSeconds = lag * state.tickMillis / 1000.0;
+        long gameMillis = Math.round((state.tick - lag) * state.tickMillis);
+        g.drawImage(backgroundAnimation.frameAt(gameMillis, true), 0, 0, null);
+
+        if (state.playerShown) {
+            playerSprite.draw(g, lerp(state.previousPlayerX, state.playerX, alpha), SQUARE_Y_POSITION);
+        }
+
+        int newest = (int) state.tick;
+        drawMoving(g, bulletSprite, state.projectiles, (int) Math.round(lagSeconds * GameEngine.PROJECTILE_SPEED), newest);
+        drawEntities(g, enemySprite, state.enemies, lerp(state.previousEnemyOriginX, state.enemyOriginX, alpha),
+                lerp(state.previousEnemyOriginY, state.enemyOriginY, alpha));
+        drawEnemyProjectiles(g, state.enemyProjectiles, (int) -Math.round(lagSeconds * GameEngine.PROJECTILE_SPEED),
+                newest);
+        drawMoving(g, camicaseSprite, state.camicases, (int) -Math.round(lagSeconds * GameEngine.CAMICASE_SPEED),
+                newest);
+        drawParticles(g, state.particles, lag, state.tickMillis);
+
+        drawHud(g, state.lives);
+
+        if (state.hasBoss) {
+            bossSprite.draw(g, lerp(state.previousBossX, state.bossX, alpha), lerp(state.previousBossY, state.bossY, alpha),
+                    state.bossWidth, state.bossHeight);
+        }
+
+        if (state.gameOver) {
+            g.drawImage(gameOver(state.hasWon, width, height), 0, 0, null);
+        }
+
+        if (overlay != null) {
+            drawOverlay(g, state.profileLines, overlay.overlayLines());
+        }
+    }
+
+    // Perfilador del hilo que pinta; con null se oculta el overlay de rendimiento. Las fases de la
+    // simulacion llegan ya resumidas en el snapshot (RenderSnapshot.profileLines).
+    public void setOverlay(FrameProfiler profiler) {
+        overlay = profiler;
+    }
+
+    private void drawOverlay(Graphics g, String[] simulation, String[] painting) {
+        int simulationLines = simulation != null ? simulation.length : 0;
+        int lines = 1 + simulationLines + painting.length;
+        g.setFont(overlayFont);
+        int lineHeight = g.getFontMetrics().getHeight();
+        int top = 50;
+        g.setColor(overlayShade);
+        g.fillRect(5, top, GAME_WIDTH - 10, lines * lineHeight + 8);
+        g.setColor(Color.GREEN);
+        int y = top + 4 + lineHeight - 3;
+        g.drawString(FrameProfiler.OVERLAY_HEADER, 10, y);
+        for (int i = 0; i < simulationLines; i++) {
+            y += lineHeight;
+            g.drawString(simulation[i], 10, y);
+        }
+        for (String line : painting) {
+            y += lineHeight;
+            g.drawString(line, 10, y);
+        }
+    }
+
+    private void drawHud(Graphics g, int lives) {
+        if (lives != heartsLives) {
+            heartsLives = lives;
+            heartsLayer = null;
+            if (lives > 0) {
+                heartsLayer = createLayer(lives * 40 - 10, HEART_SIZE);
+                Graphics2D g2d = heartsLayer.createGraphics();
+                for (int i = 0; i < lives; i++) {
+                    corazonSprite.draw(g2d, i * 40, 0);
+                }
+                g2d.dispose();
+            }
+        }
+        if (heartsLayer != null) {
+            g.drawImage(heartsLayer, 10, 10, null);
+        }
+    }
+
+    private BufferedImage gameOver(boolean hasWon, int width, int height) {
+        if (gameOverLayer != null && hasWon == gameOverWon
+                && width == gameOverLayer.getWidth() && height == gameOverLayer.getHeight()) {
+            return gameOverLayer;
+        }
+        gameOverLayer = createLayer(width, height);
+        gameOverWon = hasWon;
+        Graphics2D g2d = gameOverLayer.createGraphics();
+        g2d.setColor(gameOverShade);
+        g2d.fillRect(0, 0, width, height);
+
+        g2d.setColor(Color.WHITE);
+        g2d.setFont(messageFont);
+        FontMetrics fm = g2d.getFontMetrics();
+        String message = hasWon ? "¡HAS GANADO!" : "¡Has Perdido!";
+        int x = (width - fm.stringWidth(message)) / 2;
+        int y = height / 2;
+        g2d.drawString(message, x, y);
+
+        String restartMessage = "Presiona Enter para reiniciar";
+        String exitMessage = "o ESC para salir";
+        x = (20 + width - fm.stringWidth(restartMessage)) / 4;
+        y += fm.getHeight() + 20;
+        g2d.drawString(restartMessage, x, y);
+
+        y += fm.getHeight() + 10;
+        g2d.drawString(exitMessage, x, y);
+
+        g2d.dispose();
+        return gameOverLayer;
+    }
+
+    private BufferedImage createLayer(int width, int height) {
+        width = Math.max(1, width);
+        height = Math.max(1, height);
+        if (configuration != null) {
+            return configuration.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+    }
+
+    private void drawEntities(Graphics g, SpriteAtlas.Sprite sprite, EntityStore store, int originX, int originY) {
+        for (int i = 0; i < store.count; i++) {
+            sprite.draw(g, originX + store.x[i], originY + store.y[i], store.w[i], store.h[i]);
+        }
+    }
+
+    // Retrasa offsetY lo que ya existia en el tick anterior; lo creado en el tick newest no tenia
+    // posicion anterior y se pinta donde esta, no por detras de donde aparecio.
+    private void drawMoving(Graphics g, SpriteAtlas.Sprite sprite, EntityStore store, int offsetY, int newest) {
+        for (int i = 0; i < store.count; i++) {
+            int y = store.born[i] == newest ? store.y[i] : offsetY + store.y[i];
+            sprite.draw(g, store.x[i], y, store.w[i], store.h[i]);
+        }
+    }
+
+    // Los laseres de los camicases miden el doble de alto que una bala enemiga normal.
+    private void drawEnemyProjectiles(Graphics g, EntityStore store, int offsetY, int newest) {
+        for (int i = 0; i < store.count; i++) {
+            SpriteAtlas.Sprite sprite = store.h[i] == laserSprite.getHeight() ? laserSprite : enemyBulletSprite;
+            int y = store.born[i] == newest ? store.y[i] : offsetY + store.y[i];
+            sprite.draw(g, store.x[i], y, store.w[i], store.h[i]);
+        }
+    }
+
+    // Primero las explosiones y luego chispas y restos agrupados por color, para cambiar de color
+    // solo COLORS veces por frame aunque haya miles de particulas.
+    private void drawParticles(Graphics g, ParticleSystem particles, double lag, int tickMillis) {
+        int count = particles.count;
+        if (count == 0) {
+            return;
+        }
+        double scale = 1.0 / (1 << ParticleSystem.FIXED_SHIFT);
+        for (int i = 0; i < count; i++) {
+            if (particles.kind[i] == ParticleSystem.EXPLOSION) {
+                int elapsed = (int) Math.max(0, Math.round((particles.age[i] - lag) * tickMillis));
+                int size = particles.size[i];
+                int x = particles.x[i] >> ParticleSystem.FIXED_SHIFT;
+                int y = particles.y[i] >> ParticleSystem.FIXED_SHIFT;
+                if (size <= MAX_EXPLOSION_SIZE) {
+                    g.drawImage(explosion(size).frameAt(elapsed, false), x, y, null);
+                } else {
+                    g.drawImage(explosionAnimation.frameAt(elapsed, false), x, y, size, size, null);
+                }
+            }
+        }
+        for (int c = 0; c < ParticleSystem.COLORS; c++) {
+            g.setColor(PARTICLE_PALETTE[c]);
+            for (int i = 0; i < count; i++) {
+                if (particles.color[i] == c && particles.kind[i] != ParticleSystem.EXPLOSION) {
+                    // Con edad 1 acaban de salir en el ultimo tick: no hay posicion anterior
+                    double back = particles.age[i] > 1 ? lag : 0.0;
+                    int x = (int) ((particles.x[i] - back * particles.vx[i]) * scale);
+                    int y = (int) ((particles.y[i] - back * particles.vy[i]) * scale);
+                    g.fillRect(x, y, particles.size[i], particles.size[i]);
+                }
+            }
+        }
+    }
+
+    private FrameAnimation explosion(int size) {
+        FrameAnimation animation = explosionBySize[size];
+        if (animation == null) {
+            animation = explosionAnimation.scaledTo(size, size, configuration);
+            explosionBySize[size] = animation;
+        }
+        return animation;
+    }
+
+    private static int lerp(int from, int to, double alpha) {
+        return (int) Math.round(from + (to - from) * alpha);
+    }
+}
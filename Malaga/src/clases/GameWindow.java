@@ -1,9 +1,9 @@
 package clases;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
-import java.io.InputStream;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 
 public class GameWindow {
 
@@ -11,8 +11,15 @@ public class GameWindow {
     private static final int GAME_HEIGHT = 700;
 
     public static void main(String[] args) {
+        // Los recursos se decodifican en paralelo mientras se monta la ventana
+        AssetManager assets = new AssetManager(SpriteAtlas.defaultConfiguration()).preload();
+        assets.ready().exceptionally(error -> {
+            System.err.println("Error: " + error.getMessage());
+            System.exit(1);
+            return null;
+        });
+
         JFrame frmMalaga = new JFrame("Juego");
-        frmMalaga.setIconImage(Toolkit.getDefaultToolkit().getImage(GameWindow.class.getResource("/resources/logo_malaga.jpg")));
         frmMalaga.setTitle("Malaga");
 
         frmMalaga.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -21,7 +28,10 @@ public class GameWindow {
         frmMalaga.setResizable(false);
 
        
-        GamePanel gamePanel = new GamePanel();
+        GameEngine engine = new GameEngine(System.nanoTime(), WavePreset.fromSystemProperty(),
+                GameEngine.tickMillisFromSystemProperty());
+        engine.setHitMasks(AssetManager.hitMasksFromSystemProperty());
+        GamePanel gamePanel = new GamePanel(engine, assets);
         gamePanel.setSize(GAME_WIDTH, GAME_HEIGHT);
         gamePanel.setBackground(Color.GRAY);
         gamePanel.setLocation(200, 100);
@@ -32,27 +42,28 @@ public class GameWindow {
         logoPanel.setLocation(0, 0);
         logoPanel.setBackground(new Color(35, 31, 30));
 
-        ImageIcon logoName = null;
-        try {
-            InputStream inputStream = GameWindow.class.getClassLoader().getResourceAsStream("resources/logo_name.jpeg");
-            if (inputStream != null) {
-                logoName = new ImageIcon(ImageIO.read(inputStream));
-            } else {
-                System.out.println("Error: La imagen no se pudo cargar correctamente.");
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
         logoPanel.setLayout(new FlowLayout(FlowLayout.CENTER, 5, 5));
-        JLabel logoNameLabel = new JLabel(logoName != null ? logoName : new ImageIcon());
+        JLabel logoNameLabel = new JLabel(new ImageIcon());
         logoPanel.add(logoNameLabel);
 
+        assets.imageFuture("resources/logo_malaga.jpg")
+                .thenAccept(icon -> SwingUtilities.invokeLater(() -> frmMalaga.setIconImage(icon)));
+        assets.imageFuture("resources/logo_name.jpeg")
+                .thenAccept(logo -> SwingUtilities.invokeLater(() -> logoNameLabel.setIcon(new ImageIcon(logo))));
+
         
         frmMalaga.getContentPane().setBackground(new Color(35, 31, 30));
         frmMalaga.getContentPane().setLayout(null);
         frmMalaga.getContentPane().add(gamePanel);
         frmMalaga.getContentPane().add(logoPanel);
+        frmMalaga.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                gamePanel.shutdown();
+            }
+        });
         frmMalaga.setVisible(true);
+        assets.mark("ventana visible");
 
         
         
@@ -0,0 +1,29 @@
+package clases;
+
+// Mascaras de colision de todos los sprites que chocan, ya al tamano con el que los usa el motor.
+// Las construye AssetManager.loadHitMasks a partir del alfa de los PNG; el motor solo las lee.
+public final class HitMasks {
+    final CollisionMask player;
+    final CollisionMask bullet;
+    final CollisionMask enemy;
+    final CollisionMask enemyBullet;
+    final CollisionMask laser;
+    final CollisionMask camicase;
+    final CollisionMask boss;
+
+    public HitMasks(CollisionMask player, CollisionMask bullet, CollisionMask enemy, CollisionMask enemyBullet,
+                    CollisionMask laser, CollisionMask camicase, CollisionMask boss) {
+        this.player = player;
+        this.bullet = bullet;
+        this.enemy = enemy;
+        this.enemyBullet = enemyBullet;
+        this.laser = laser;
+        this.camicase = camicase;
+        this.boss = boss;
+    }
+
+    // Las balas enemigas y los laseres de los camicases solo se distinguen por la altura, igual que al dibujarlos.
+    CollisionMask enemyProjectile(int h) {
+        return h == laser.height ? laser : enemyBullet;
+    }
+}
@@ -0,0 +1,161 @@
+package clases;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// Grabacion de una partida: la semilla, el preset de oleadas, la configuracion del motor (incluidos
+// el paso y si chocaba con mascaras de pixeles) y la entrada de cada tick.
+// Las entradas se guardan como tramos (entrada, longitud) porque las teclas cambian pocas veces
+// por segundo; al final va la huella del estado para comprobar la reproduccion.
+public class InputRecording {
+    private static final int MAGIC = 0x4D4C4752; // "MLGR"
+    private static final int VERSION = 4;
+
+    private final long seed;
+    private final WavePreset preset;
+    private final int enemyProjectileCapacity;
+    private final ProjectilePool.OverflowPolicy overflowPolicy;
+    private final int tickMillis;
+    private boolean pixelCollisions;
+    private byte[] inputs = new byte[1024];
+    private int ticks;
+    private long finalHash;
+
+    public InputRecording(long seed, WavePreset preset, int enemyProjectileCapacity,
+                          ProjectilePool.OverflowPolicy overflowPolicy, int tickMillis) {
+        this.seed = seed;
+        this.preset = preset;
+        this.enemyProjectileCapacity = enemyProjectileCapacity;
+        this.overflowPolicy = overflowPolicy;
+        this.tickMillis = tickMillis;
+    }
+
+    // Solo se puede grabar un motor recien creado: la repeticion arranca desde el tick 0.
+    public static InputRecording of(GameEngine engine) {
+        if (engine.getTick() != 0) {
+            throw new IllegalStateException("El motor ya ha avanzado " + engine.getTick() + " ticks");
+        }
+        ProjectilePool pool = engine.getEnemyProjectiles();
+        InputRecording recording = new InputRecording(engine.getSeed(), engine.getPreset(), pool.getMaxCapacity(),
+                pool.getPolicy(), engine.getTickMillis());
+        recording.pixelCollisions = engine.getHitMasks() != null;
+        return recording;
+    }
+
+    public GameEngine newEngine() {
+        GameEngine engine = new GameEngine(seed, preset, enemyProjectileCapacity, overflowPolicy, tickMillis);
+        if (pixelCollisions) {
+            engine.setHitMasks(AssetManager.loadHitMasks());
+        }
+        return engine;
+    }
+
+    public void record(int input) {
+        if (ticks == inputs.length) {
+            inputs = Arrays.copyOf(inputs, ticks * 2);
+        }
+        inputs[ticks++] = (byte) input;
+    }
+
+    public int inputAt(int tick) {
+        return inputs[tick];
+    }
+
+    public int getTicks() {
+        return ticks;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getTickMillis() {
+        return tickMillis;
+    }
+
+    public long getFinalHash() {
+        return finalHash;
+    }
+
+    public void save(Path file, long stateHash) throws IOException {
+        finalHash = stateHash;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(seed);
+            out.writeUTF(preset.name());
+            out.writeInt(enemyProjectileCapacity);
+            out.writeByte(overflowPolicy.ordinal());
+            out.writeInt(tickMillis);
+            out.writeBoolean(pixelCollisions);
+            out.writeInt(ticks);
+            for (int i = 0; i < ticks; ) {
+                int run = 1;
+                while (i + run < ticks && inputs[i + run] == inputs[i]) run++;
+                out.writeByte(inputs[i]);
+                writeVarInt(out, run);
+                i += run;
+            }
+            out.writeLong(finalHash);
+        }
+    }
+
+    public static InputRecording load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("No es una grabacion de Malaga: " + file);
+            }
+            // Como con los estados del motor, solo vale la version actual: una grabacion anterior
+            // se reproduciria con otras reglas y no llegaria a su huella
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("Version de grabacion no soportada: " + version);
+            }
+            long seed = in.readLong();
+            WavePreset preset = WavePreset.valueOf(in.readUTF());
+            int capacity = in.readInt();
+            ProjectilePool.OverflowPolicy policy = ProjectilePool.OverflowPolicy.values()[in.readUnsignedByte()];
+            InputRecording recording = new InputRecording(seed, preset, capacity, policy, in.readInt());
+            recording.pixelCollisions = in.readBoolean();
+            int ticks = in.readInt();
+            recording.inputs = new byte[Math.max(1, ticks)];
+            while (recording.ticks < ticks) {
+                byte input = in.readByte();
+                int run = readVarInt(in);
+                if (run <= 0 || recording.ticks + run > ticks) {
+                    throw new IOException("Tramo de entrada corrupto en el tick " + recording.ticks);
+                }
+                Arrays.fill(recording.inputs, recording.ticks, recording.ticks + run, input);
+                recording.ticks += run;
+            }
+            recording.finalHash = in.readLong();
+            return recording;
+        }
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Longitud de tramo demasiado grande");
+    }
+}
@@ -0,0 +1,75 @@
+package clases;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Cola circular sin bloqueos de un productor (el EDT, al recibir teclas) y un consumidor (el hilo
+// de simulacion, al empezar cada tick). Cada evento es una transicion de tecla con el instante
+// en que se recibio, asi que una pulsacion y su suelta dentro del mismo tick no se pierden.
+public class InputRing {
+    public static final int KEY_LEFT = 0;
+    public static final int KEY_RIGHT = 1;
+    public static final int KEY_FIRE = 2;
+
+    private final int[] events;
+    private final long[] times;
+    private final int mask;
+
+    // head: siguiente hueco a escribir (solo el productor); tail: siguiente a leer (solo el consumidor)
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private long polledNanos;
+    private volatile long dropped;
+
+    public InputRing(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("La capacidad debe ser potencia de dos: " + capacity);
+        }
+        events = new int[capacity];
+        times = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    // Solo desde el productor. Si la cola esta llena el evento se descarta y se cuenta.
+    public boolean offer(int key, boolean pressed, long nanos) {
+        long h = head.get();
+        if (h - tail.get() == events.length) {
+            dropped++;
+            return false;
+        }
+        int slot = (int) h & mask;
+        events[slot] = key << 1 | (pressed ? 1 : 0);
+        times[slot] = nanos;
+        head.lazySet(h + 1);
+        return true;
+    }
+
+    // Solo desde el consumidor. Devuelve el siguiente evento o -1 si no hay ninguno.
+    public int poll() {
+        long t = tail.get();
+        if (t == head.get()) {
+            return -1;
+        }
+        int slot = (int) t & mask;
+        int event = events[slot];
+        polledNanos = times[slot];
+        tail.lazySet(t + 1);
+        return event;
+    }
+
+    // Instante en que se recibio el ultimo evento devuelto por poll().
+    public long polledNanos() {
+        return polledNanos;
+    }
+
+    public static int key(int event) {
+        return event >> 1;
+    }
+
+    public static boolean pressed(int event) {
+        return (event & 1) != 0;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+}
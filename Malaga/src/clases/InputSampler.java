@@ -0,0 +1,59 @@
+package clases;
+
+// Convierte las transiciones de tecla de un InputRing en la entrada de cada tick. Una tecla
+// cuenta en el tick si esta mantenida o si se pulso desde el tick anterior (aunque ya se haya
+// soltado). Con izquierda y derecha a la vez manda la ultima pulsada. Solo desde el hilo de simulacion.
+public class InputSampler {
+    private final InputRing ring;
+    private final boolean[] held = new boolean[3];
+    private final boolean[] tapped = new boolean[3];
+    private int lastHorizontal = -1;
+    private long pendingEventNanos;
+
+    public InputSampler(InputRing ring) {
+        this.ring = ring;
+    }
+
+    public int nextTick() {
+        for (int event = ring.poll(); event != -1; event = ring.poll()) {
+            int key = InputRing.key(event);
+            if (InputRing.pressed(event)) {
+                held[key] = true;
+                tapped[key] = true;
+                if (key != InputRing.KEY_FIRE) {
+                    lastHorizontal = key;
+                }
+            } else {
+                held[key] = false;
+            }
+            if (pendingEventNanos == 0) {
+                pendingEventNanos = ring.polledNanos();
+            }
+        }
+
+        boolean left = held[InputRing.KEY_LEFT] || tapped[InputRing.KEY_LEFT];
+        boolean right = held[InputRing.KEY_RIGHT] || tapped[InputRing.KEY_RIGHT];
+        int input = 0;
+        if (left && right) {
+            input |= lastHorizontal == InputRing.KEY_LEFT ? GameEngine.INPUT_LEFT : GameEngine.INPUT_RIGHT;
+        } else if (left) {
+            input |= GameEngine.INPUT_LEFT;
+        } else if (right) {
+            input |= GameEngine.INPUT_RIGHT;
+        }
+        if (held[InputRing.KEY_FIRE] || tapped[InputRing.KEY_FIRE]) {
+            input |= GameEngine.INPUT_FIRE;
+        }
+        tapped[InputRing.KEY_LEFT] = false;
+        tapped[InputRing.KEY_RIGHT] = false;
+        tapped[InputRing.KEY_FIRE] = false;
+        return input;
+    }
+
+    // Instante del evento mas antiguo aplicado desde la ultima llamada, o 0 si no hubo ninguno.
+    public long takeEventNanos() {
+        long nanos = pendingEventNanos;
+        pendingEventNanos = 0;
+        return nanos;
+    }
+}
@@ -0,0 +1,244 @@
+package clases;
+
+// Efectos visuales (explosiones, restos y chispas) en arrays paralelos reservados al crearlo:
+// lanzar un efecto solo escribe en los arrays y lo que no cabe se descarta y se cuenta.
+// Las posiciones y velocidades van en punto fijo (1/256 px) y los numeros aleatorios salen de
+// un generador propio, asi que los efectos no tocan el estado jugable ni la semilla del motor.
+// Velocidades y gravedad estan pensadas para pasos de GameEngine.TICK_MILLIS y se escalan al paso
+// del motor, igual que las duraciones, que van en ms.
+public class ParticleSystem {
+    public static final int SPARK = 0;
+    public static final int DEBRIS = 1;
+    public static final int EXPLOSION = 2;
+
+    // Indices de la paleta con la que GameRenderer pinta chispas y restos
+    public static final int COLOR_ENEMY = 0;
+    public static final int COLOR_CAMICASE = 1;
+    public static final int COLOR_BOSS = 2;
+    public static final int COLOR_PLAYER = 3;
+    public static final int COLORS = 4;
+
+    static final int FIXED_SHIFT = 8;
+    private static final int ONE = 1 << FIXED_SHIFT;
+    private static final int DEBRIS_GRAVITY = ONE / 12;
+    private static final int DIRECTIONS = 64;
+    private static final int[] COS = new int[DIRECTIONS];
+    private static final int[] SIN = new int[DIRECTIONS];
+
+    static {
+        for (int i = 0; i < DIRECTIONS; i++) {
+            double angle = 2 * Math.PI * i / DIRECTIONS;
+            COS[i] = (int) Math.round(Math.cos(angle) * ONE);
+            SIN[i] = (int) Math.round(Math.sin(angle) * ONE);
+        }
+    }
+
+    int[] x;
+    int[] y;
+    int[] vx;
+    int[] vy;
+    int[] size;
+    int[] age;
+    int[] life;
+    byte[] kind;
+    byte[] color;
+    int count;
+
+    private final int tickMillis;
+    private final int explosionTicks;
+    private final int gravity;
+    private int rng;
+    private long dropped;
+
+    public ParticleSystem(int capacity) {
+        this(capacity, 1, GameEngine.TICK_MILLIS);
+    }
+
+    public ParticleSystem(int capacity, long seed, int tickMillis) {
+        this.tickMillis = tickMillis;
+        this.explosionTicks = lifetime(GameEngine.EXPLOSION_DURATION);
+        this.gravity = DEBRIS_GRAVITY * tickMillis * tickMillis / (GameEngine.TICK_MILLIS * GameEngine.TICK_MILLIS);
+        allocate(Math.max(1, capacity));
+        reseed(seed);
+    }
+
+    private void allocate(int capacity) {
+        x = new int[capacity];
+        y = new int[capacity];
+        vx = new int[capacity];
+        vy = new int[capacity];
+        size = new int[capacity];
+        age = new int[capacity];
+        life = new int[capacity];
+        kind = new byte[capacity];
+        color = new byte[capacity];
+    }
+
+    public void reseed(long seed) {
+        int mixed = (int) (seed ^ seed >>> 32) * 0x9E3779B9;
+        rng = mixed != 0 ? mixed : 1;
+    }
+
+    // Avanza un tick: las particulas se mueven, los restos caen y las caducadas se borran.
+    public void update() {
+        for (int i = 0; i < count; ) {
+            if (++age[i] >= life[i]) {
+                remove(i);
+                continue;
+            }
+            x[i] += vx[i];
+            y[i] += vy[i];
+            if (kind[i] == DEBRIS) {
+                vy[i] += gravity;
+            }
+            i++;
+        }
+    }
+
+    // Explosion animada de lado size centrada en (cx, cy) con debris restos que salen en abanico.
+    public void explosion(int cx, int cy, int explosionSize, int paletteColor, int debris) {
+        add(EXPLOSION, cx - explosionSize / 2, cy - explosionSize / 2, 0, 0, explosionSize, explosionTicks, paletteColor);
+        for (int i = 0; i < debris; i++) {
+            int direction = nextInt(DIRECTIONS);
+            int speed = ONE + nextInt(3 * ONE);
+            add(DEBRIS, cx, cy, perTick(COS[direction] * speed >> FIXED_SHIFT),
+                    perTick(SIN[direction] * speed >> FIXED_SHIFT), 2 + nextInt(3), lifetime(300 + 10 * nextInt(50)),
+                    paletteColor);
+        }
+    }
+
+    // Varias explosiones repartidas por un rectangulo, para lo que es mas grande que un sprite.
+    public void explosions(int px, int py, int pw, int ph, int explosions, int explosionSize, int paletteColor,
+                           int debrisEach) {
+        for (int i = 0; i < explosions; i++) {
+            explosion(px + nextInt(Math.max(1, pw)), py + nextInt(Math.max(1, ph)), explosionSize, paletteColor,
+                    debrisEach);
+        }
+    }
+
+    // Chispas de un impacto que no destruye: salen hacia atras del proyectil (dirY = -1 hacia arriba).
+    public void sparks(int cx, int cy, int dirY, int sparks, int paletteColor) {
+        for (int i = 0; i < sparks; i++) {
+            int spreadX = nextInt(4 * ONE) - 2 * ONE;
+            int speedY = ONE + nextInt(2 * ONE);
+            add(SPARK, cx, cy, perTick(spreadX), perTick(dirY * speedY), 2, lifetime(80 + 10 * nextInt(12)),
+                    paletteColor);
+        }
+    }
+
+    // Velocidad por tick de TICK_MILLIS pasada al paso del motor.
+    private int perTick(int velocity) {
+        return velocity * tickMillis / GameEngine.TICK_MILLIS;
+    }
+
+    private int lifetime(int millis) {
+        return Math.max(1, millis / tickMillis);
+    }
+
+    private void add(int particleKind, int px, int py, int pvx, int pvy, int particleSize, int ticks, int paletteColor) {
+        if (count == x.length) {
+            dropped++;
+            return;
+        }
+        int i = count++;
+        x[i] = px << FIXED_SHIFT;
+        y[i] = py << FIXED_SHIFT;
+        vx[i] = pvx;
+        vy[i] = pvy;
+        size[i] = particleSize;
+        age[i] = 0;
+        life[i] = ticks;
+        kind[i] = (byte) particleKind;
+        color[i] = (byte) paletteColor;
+    }
+
+    private void remove(int i) {
+        int last = --count;
+        if (i != last) {
+            x[i] = x[last];
+            y[i] = y[last];
+            vx[i] = vx[last];
+            vy[i] = vy[last];
+            size[i] = size[last];
+            age[i] = age[last];
+            life[i] = life[last];
+            kind[i] = kind[last];
+            color[i] = color[last];
+        }
+    }
+
+    // xorshift32; entero en [0, bound)
+    private int nextInt(int bound) {
+        int r = rng;
+        r ^= r << 13;
+        r ^= r >>> 17;
+        r ^= r << 5;
+        rng = r;
+        return (int) ((r & 0xFFFFFFFFL) * bound >>> 32);
+    }
+
+    // Copia las particulas vivas de otro sistema reutilizando los arrays propios si caben.
+    public void copyFrom(ParticleSystem source) {
+        if (x.length < source.count) {
+            allocate(source.x.length);
+        }
+        count = source.count;
+        System.arraycopy(source.x, 0, x, 0, count);
+        System.arraycopy(source.y, 0, y, 0, count);
+        System.arraycopy(source.vx, 0, vx, 0, count);
+        System.arraycopy(source.vy, 0, vy, 0, count);
+        System.arraycopy(source.size, 0, size, 0, count);
+        System.arraycopy(source.age, 0, age, 0, count);
+        System.arraycopy(source.life, 0, life, 0, count);
+        System.arraycopy(source.kind, 0, kind, 0, count);
+        System.arraycopy(source.color, 0, color, 0, count);
+    }
+
+    public void writeTo(StateBuffer out) {
+        out.putInt(rng);
+        out.putInt(count);
+        out.putInts(x, count);
+        out.putInts(y, count);
+        out.putInts(vx, count);
+        out.putInts(vy, count);
+        out.putInts(size, count);
+        out.putInts(age, count);
+        out.putInts(life, count);
+        out.putBytes(kind, count);
+        out.putBytes(color, count);
+    }
+
+    public void readFrom(StateBuffer in) {
+        rng = in.getInt();
+        int n = in.getInt();
+        if (n < 0 || n > x.length) {
+            throw new IllegalStateException("El estado tiene " + n + " particulas y caben " + x.length);
+        }
+        count = n;
+        in.getInts(x, n);
+        in.getInts(y, n);
+        in.getInts(vx, n);
+        in.getInts(vy, n);
+        in.getInts(size, n);
+        in.getInts(age, n);
+        in.getInts(life, n);
+        in.getBytes(kind, n);
+        in.getBytes(color, n);
+    }
+
+    public void clear() {
+        count = 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int capacity() {
+        return x.length;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+}
@@ -0,0 +1,152 @@
+package clases;
+
+import java.util.Arrays;
+
+// Almacen de proyectiles con capacidad maxima. Los huecos liberados se reutilizan, de modo que
+// en regimen estable disparar no reserva memoria; al llenarse se aplica la politica de desborde.
+// Los vivos forman ademas una lista doblemente enlazada en orden de creacion, asi que encontrar
+// y descartar el mas antiguo cuesta O(1) aunque el pool este lleno y se dispare cada tick.
+public class ProjectilePool extends EntityStore {
+    public enum OverflowPolicy {
+        DROP_OLDEST,
+        REFUSE_SPAWN
+    }
+
+    private final OverflowPolicy policy;
+    // prev/next enlazan los indices por orden de creacion; head es el mas antiguo y tail el ultimo
+    private int[] prev;
+    private int[] next;
+    private int head = -1;
+    private int tail = -1;
+
+    private long hits;
+    private long misses;
+    private long dropped;
+    private long refused;
+
+    public ProjectilePool(int initialCapacity, int maxCapacity, OverflowPolicy policy) {
+        super(initialCapacity, maxCapacity);
+        this.policy = policy;
+        this.prev = new int[capacity()];
+        this.next = new int[capacity()];
+    }
+
+    // Devuelve el indice del proyectil creado o -1 si la politica lo rechaza.
+    public int spawn(int px, int py, int pw, int ph) {
+        if (count == getMaxCapacity()) {
+            if (policy == OverflowPolicy.REFUSE_SPAWN) {
+                refused++;
+                return -1;
+            }
+            remove(head);
+            dropped++;
+        }
+        if (count < capacity()) {
+            hits++;
+        } else {
+            misses++;
+        }
+        int i = add(px, py, pw, ph, 1);
+        append(i);
+        return i;
+    }
+
+    private void append(int i) {
+        prev[i] = tail;
+        next[i] = -1;
+        if (tail != -1) {
+            next[tail] = i;
+        } else {
+            head = i;
+        }
+        tail = i;
+    }
+
+    @Override
+    public void remove(int i) {
+        int p = prev[i], n = next[i];
+        if (p != -1) next[p] = n;
+        else head = n;
+        if (n != -1) prev[n] = p;
+        else tail = p;
+
+        // El ultimo pasa al hueco i: sus vecinos en la lista tienen que apuntar a i
+        int last = count - 1;
+        if (i != last) {
+            p = prev[last];
+            n = next[last];
+            prev[i] = p;
+            next[i] = n;
+            if (p != -1) next[p] = i;
+            else head = i;
+            if (n != -1) prev[n] = i;
+            else tail = i;
+        }
+        super.remove(i);
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        head = -1;
+        tail = -1;
+    }
+
+    @Override
+    protected void grow(int capacity) {
+        super.grow(capacity);
+        prev = Arrays.copyOf(prev, capacity);
+        next = Arrays.copyOf(next, capacity);
+    }
+
+    // Ademas de las entidades se guarda su orden de creacion, que decide cual se descarta al llenarse.
+    @Override
+    public void writeTo(StateBuffer out) {
+        super.writeTo(out);
+        for (int i = head; i != -1; i = next[i]) {
+            out.putInt(i);
+        }
+    }
+
+    // El orden de creacion tiene que nombrar cada proyectil una vez: -2 marca los que faltan.
+    @Override
+    public void readFrom(StateBuffer in) {
+        super.readFrom(in);
+        head = -1;
+        tail = -1;
+        Arrays.fill(prev, 0, count, -2);
+        for (int k = 0; k < count; k++) {
+            int i = in.getInt();
+            if (i < 0 || i >= count || prev[i] != -2) {
+                throw new IllegalStateException("Orden de proyectiles corrupto: " + i + " en la posicion " + k);
+            }
+            append(i);
+        }
+    }
+
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    public long getRefused() {
+        return refused;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("pool[%d/%d %s] hits=%d misses=%d dropped=%d refused=%d",
+                count, getMaxCapacity(), policy, hits, misses, dropped, refused);
+    }
+}
@@ -0,0 +1,121 @@
+package clases;
+
+// Copia de todo lo que hace falta para dibujar un frame. El hilo de simulacion la rellena al
+// terminar sus ticks y el de pintado solo lee de ella, asi que ninguno espera al otro.
+// Las instancias se reutilizan (ver SnapshotExchange): capturar no reserva memoria en regimen estable.
+public class RenderSnapshot {
+    long tick;
+    int tickMillis = GameEngine.TICK_MILLIS;
+    int level;
+    int lives;
+    boolean gameOver;
+    boolean hasWon;
+
+    int playerX;
+    boolean playerShown;
+
+    boolean hasBoss;
+    int bossX, bossY, bossWidth, bossHeight;
+
+    // Los enemigos se guardan relativos al origen de la formacion, igual que en el motor
+    int enemyOriginX, enemyOriginY;
+    final EntityStore enemies = new EntityStore(64);
+    final EntityStore projectiles = new EntityStore(64);
+    final EntityStore enemyProjectiles = new EntityStore(256);
+    final EntityStore camicases = new EntityStore(16);
+    final ParticleSystem particles = new ParticleSystem(256);
+
+    // Estado del tick anterior para interpolar; las balas, camicases y particulas se interpolan
+    // con su velocidad porque no conservan su indice entre ticks, salvo las creadas en el ultimo
+    // tick (EntityStore.born, ParticleSystem.age), que no tenian posicion anterior
+    long previousTick = -1;
+    int previousLevel;
+    int previousPlayerX;
+    int previousEnemyOriginX, previousEnemyOriginY;
+    int previousBossX, previousBossY;
+
+    // Momento de la publicacion y fraccion del siguiente tick ya transcurrida en ese momento
+    long publishNanos;
+    double publishAlpha = 1.0;
+    long stepNanos;
+
+    // Resumen del perfilador de la simulacion para el overlay (null si esta oculto). Lo prepara el
+    // hilo de simulacion, el unico que toca esos histogramas; el array no se modifica despues.
+    String[] profileLines;
+
+    // Instante de la tecla mas antigua aplicada en los ticks de este snapshot (0 = ninguna)
+    long inputNanos;
+
+    // Lo marca la simulacion al publicar y lo consume el pintado; ver SnapshotExchange
+    volatile boolean fresh;
+
+    public void capture(GameEngine engine) {
+        tick = engine.getTick();
+        tickMillis = engine.getTickMillis();
+        level = engine.getLevel();
+        lives = engine.getLives();
+        gameOver = engine.isGameOver();
+        hasWon = engine.hasWon();
+
+        playerX = engine.getPlayerX();
+        playerShown = engine.isPlayerShown();
+
+        GameEngine.BossEnemy boss = engine.getBossEnemy();
+        hasBoss = boss != null;
+        if (hasBoss) {
+            bossX = boss.x;
+            bossY = boss.y;
+            bossWidth = boss.width;
+            bossHeight = boss.height;
+        }
+
+        Formation formation = engine.getEnemies();
+        enemyOriginX = formation.originX;
+        enemyOriginY = formation.originY;
+        enemies.copyFrom(formation);
+        projectiles.copyFrom(engine.getProjectiles());
+        enemyProjectiles.copyFrom(engine.getEnemyProjectiles());
+        camicases.copyFrom(engine.getCamicases());
+        particles.copyFrom(engine.getParticles());
+
+        // Sin tick anterior contiguo (primer frame, cambio de nivel) no se interpola
+        if (previousTick != tick - 1 || previousLevel != level) {
+            previousPlayerX = playerX;
+            previousEnemyOriginX = enemyOriginX;
+            previousEnemyOriginY = enemyOriginY;
+            previousBossX = bossX;
+            previousBossY = bossY;
+        }
+    }
+
+    // Se llama justo antes del ultimo tick de cada tanda.
+    public void capturePrevious(GameEngine engine) {
+        previousTick = engine.getTick();
+        previousLevel = engine.getLevel();
+        previousPlayerX = engine.getPlayerX();
+        Formation formation = engine.getEnemies();
+        previousEnemyOriginX = formation.originX;
+        previousEnemyOriginY = formation.originY;
+        GameEngine.BossEnemy boss = engine.getBossEnemy();
+        if (boss != null) {
+            previousBossX = boss.x;
+            previousBossY = boss.y;
+        }
+    }
+
+    // Posicion entre el tick anterior (0) y el actual (1) que corresponde al instante nowNanos.
+    public double alphaAt(long nowNanos) {
+        if (stepNanos <= 0) {
+            return 1.0;
+        }
+        return Math.max(0.0, Math.min(1.0, publishAlpha + (nowNanos - publishNanos) / (double) stepNanos));
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+}
@@ -0,0 +1,75 @@
+package clases;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// Reproduce grabaciones sin ventana y a toda velocidad, y comprueba que el estado final coincide
+// con el que se guardo al grabar. Uso: java clases.Replayer partida.mlgr [otra.mlgr ...]
+// Con --estado TICK fichero.mlgs guarda ademas el estado del motor en ese tick de la primera
+// grabacion, p. ej. para que StressRunner empiece directamente en el jefe.
+public class Replayer {
+
+    public static void main(String[] args) throws IOException {
+        int stateTick = -1;
+        Path stateFile = null;
+        int first = 0;
+        if (args.length >= 3 && args[0].equals("--estado")) {
+            stateTick = Integer.parseInt(args[1]);
+            stateFile = Paths.get(args[2]);
+            first = 3;
+        }
+        if (args.length == first) {
+            System.err.println("Uso: java clases.Replayer [--estado <tick> <fichero>] <grabacion> [<grabacion> ...]");
+            System.exit(2);
+        }
+        boolean allMatch = true;
+        for (int a = first; a < args.length; a++) {
+            Path file = Paths.get(args[a]);
+            InputRecording recording = InputRecording.load(file);
+
+            long start = System.nanoTime();
+            long hash = replay(recording, a == first ? stateTick : -1, stateFile).stateHash();
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            boolean match = hash == recording.getFinalHash();
+            allMatch &= match;
+            System.out.printf("%s: %d ticks en %.3f s (%.0f ticks/s, x%.0f tiempo real) hash=%016x %s%n",
+                    file.getFileName(), recording.getTicks(), seconds, recording.getTicks() / seconds,
+                    recording.getTicks() * recording.getTickMillis() / 1000.0 / seconds, hash,
+                    match ? "OK" : "DISTINTO (esperado " + String.format("%016x", recording.getFinalHash()) + ")");
+        }
+        if (!allMatch) {
+            System.exit(1);
+        }
+    }
+
+    public static GameEngine replay(InputRecording recording) {
+        GameEngine engine = recording.newEngine();
+        for (int i = 0; i < recording.getTicks(); i++) {
+            engine.step(recording.inputAt(i));
+        }
+        return engine;
+    }
+
+    private static GameEngine replay(InputRecording recording, int stateTick, Path stateFile) throws IOException {
+        if (stateTick < 0) {
+            return replay(recording);
+        }
+        if (stateTick > recording.getTicks()) {
+            throw new IllegalArgumentException("La grabacion solo tiene " + recording.getTicks() + " ticks");
+        }
+        GameEngine engine = recording.newEngine();
+        for (int i = 0; i < stateTick; i++) {
+            engine.step(recording.inputAt(i));
+        }
+        StateBuffer state = new StateBuffer();
+        engine.saveState(state);
+        state.save(stateFile);
+        System.out.printf("estado del tick %d (nivel %d) guardado en %s%n", stateTick, engine.getLevel(), stateFile);
+        for (int i = stateTick; i < recording.getTicks(); i++) {
+            engine.step(recording.inputAt(i));
+        }
+        return engine;
+    }
+}
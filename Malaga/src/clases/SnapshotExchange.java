@@ -0,0 +1,47 @@
+package clases;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+// Triple buffer sin bloqueos entre el hilo de simulacion y el de pintado. Cada uno de los tres
+// snapshots pertenece en todo momento a un solo hilo: la simulacion escribe en el suyo y lo
+// intercambia por el del medio; el pintado, si el del medio es nuevo, lo intercambia por el suyo.
+// Ninguno espera nunca al otro y el pintado siempre ve el ultimo estado publicado.
+public class SnapshotExchange {
+    private final AtomicReference<RenderSnapshot> middle = new AtomicReference<>(new RenderSnapshot());
+    private RenderSnapshot back = new RenderSnapshot();
+    private RenderSnapshot front = new RenderSnapshot();
+
+    // Solo desde el hilo de simulacion, antes del ultimo tick de la tanda que se va a publicar.
+    public void capturePrevious(GameEngine engine) {
+        back.capturePrevious(engine);
+    }
+
+    // Solo desde el hilo de simulacion. alpha es la fraccion del siguiente tick ya transcurrida e
+    // inputNanos el instante de la primera tecla aplicada desde la publicacion anterior (o 0).
+    // profileLines es el resumen del perfilador de la simulacion para el overlay, o null.
+    public void publish(GameEngine engine, double alpha, long stepNanos, long inputNanos, String[] profileLines) {
+        back.capture(engine);
+        back.inputNanos = inputNanos;
+        back.profileLines = profileLines;
+        back.publishAlpha = alpha;
+        back.stepNanos = stepNanos;
+        back.publishNanos = System.nanoTime();
+        back.fresh = true;
+        back = middle.getAndSet(back);
+    }
+
+    // Solo desde el hilo de pintado. Devuelve true si hay un snapshot nuevo desde la ultima llamada.
+    public boolean update() {
+        if (!middle.get().fresh) {
+            return false;
+        }
+        front.fresh = false;
+        front = middle.getAndSet(front);
+        return true;
+    }
+
+    // Ultimo snapshot tomado por update(); solo desde el hilo de pintado.
+    public RenderSnapshot front() {
+        return front;
+    }
+}
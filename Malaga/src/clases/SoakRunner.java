@@ -0,0 +1,188 @@
+package clases;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Prueba de resistencia: juega horas de tiempo de juego sin ventana, reiniciando en cada game
+// over, y vigila cuantas entidades hay en cada lista, el heap y las pausas del GC. Falla (codigo
+// de salida 1) en cuanto una lista pasa de su limite o si el heap vivo crece mas de lo permitido
+// entre el final del calentamiento y el final de la prueba.
+// Uso: java clases.SoakRunner [PRESET] [horas de juego] [BOT]   (por defecto CAMPAIGN, 3 horas, DODGE)
+// Limites: -Dmalaga.soak.<lista>=N (projectiles, enemyProjectiles, enemies, camicases, particles)
+// y -Dmalaga.soak.heapGrowthMb=N (por defecto 32). Los almacenes no pueden pasar de su tope, asi
+// que por defecto enemigos y camicases se limitan a lo que permiten las oleadas del preset, y las
+// demas listas a uno menos que su tope: llegar a el ya es desbordar (se descartan disparos o
+// particulas).
+// Con -Dmalaga.soak.csv=fichero se guarda una muestra por minuto de juego.
+public class SoakRunner {
+    private static final String[] LISTS = {"projectiles", "enemyProjectiles", "enemies", "camicases", "particles"};
+    private static final int SAMPLE_TICKS = 60_000 / GameEngine.TICK_MILLIS;
+    private static final int REPORT_SAMPLES = 15;
+    private static final int WARMUP_SAMPLES = 5;
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final AtomicLong gcPauses = new AtomicLong();
+    private final AtomicLong gcPauseMillis = new AtomicLong();
+    private final AtomicLong windowMaxPauseMillis = new AtomicLong();
+    private final LatencyHistogram pauses = new LatencyHistogram();
+
+    public static void main(String[] args) throws IOException {
+        WavePreset preset = args.length > 0 ? WavePreset.valueOf(args[0].toUpperCase(Locale.ROOT)) : WavePreset.CAMPAIGN;
+        double hours = args.length > 1 ? Double.parseDouble(args[1]) : 3;
+        Bot bot = args.length > 2 ? Bot.valueOf(args[2].toUpperCase(Locale.ROOT)) : Bot.DODGE;
+        boolean ok = new SoakRunner().run(preset, hours, bot);
+        System.exit(ok ? 0 : 1);
+    }
+
+    public boolean run(WavePreset preset, double hours, Bot bot) throws IOException {
+        long totalTicks = (long) (hours * 3600 * 1000 / GameEngine.TICK_MILLIS);
+        GameEngine engine = new GameEngine(42, preset);
+        GameRandom random = new GameRandom(42);
+
+        int[] limits = {
+                engine.getProjectiles().getMaxCapacity() - 1,
+                engine.getEnemyProjectiles().getMaxCapacity() - 1,
+                preset.getMaxEnemies(),
+                preset.getMaxCamicases(),
+                engine.getParticles().capacity() - 1
+        };
+        for (int i = 0; i < LISTS.length; i++) {
+            limits[i] = Integer.getInteger("malaga.soak." + LISTS[i], limits[i]);
+        }
+        long heapGrowthLimit = Long.getLong("malaga.soak.heapGrowthMb", 32) << 20;
+        String csvFile = System.getProperty("malaga.soak.csv");
+        PrintWriter csv = csvFile == null ? null : new PrintWriter(Files.newBufferedWriter(Paths.get(csvFile)));
+        if (csv != null) {
+            csv.println("minuto,ticks,partidas,projectiles,enemyProjectiles,enemies,camicases,particles,"
+                    + "heapUsadoMb,gcs,gcMs,pausaMaxMs");
+        }
+        listenToGc();
+
+        System.out.printf(Locale.ROOT, "Soak de %s con %s: %.1f h de juego (%d ticks)%n", preset, bot, hours, totalTicks);
+        System.out.printf("%7s %8s %9s %9s %8s %9s %9s %9s %6s %8s%n", "minuto", "partidas", "balas", "enemigas",
+                "enemigos", "camicases", "particul.", "heap MB", "gcs", "pausa ms");
+
+        int[] counts = new int[LISTS.length];
+        int[] windowMax = new int[LISTS.length];
+        int[] runMax = new int[LISTS.length];
+        long games = 0;
+        long baselineHeap = -1;
+        String failure = null;
+        long start = System.nanoTime();
+
+        for (long tick = 1; tick <= totalTicks && failure == null; tick++) {
+            if (engine.isGameOver()) {
+                games++;
+            }
+            engine.step(bot.input(engine, random) | GameEngine.INPUT_RESET);
+
+            counts[0] = engine.getProjectiles().size();
+            counts[1] = engine.getEnemyProjectiles().size();
+            counts[2] = engine.getEnemies().size();
+            counts[3] = engine.getCamicases().size();
+            counts[4] = engine.getParticles().size();
+            for (int i = 0; i < LISTS.length; i++) {
+                windowMax[i] = Math.max(windowMax[i], counts[i]);
+                if (counts[i] > limits[i]) {
+                    failure = String.format("%s=%d supera el limite %d en el tick %d", LISTS[i], counts[i], limits[i], tick);
+                }
+            }
+
+            if (tick % SAMPLE_TICKS == 0 || tick == totalTicks) {
+                long sample = tick / SAMPLE_TICKS;
+                long heapUsed = memory.getHeapMemoryUsage().getUsed();
+                long pauseMax = windowMaxPauseMillis.getAndSet(0);
+                if (csv != null) {
+                    csv.printf(Locale.ROOT, "%d,%d,%d,%d,%d,%d,%d,%d,%.1f,%d,%d,%d%n", sample, tick, games,
+                            windowMax[0], windowMax[1], windowMax[2], windowMax[3], windowMax[4],
+                            heapUsed / 1048576.0, gcPauses.get(), gcPauseMillis.get(), pauseMax);
+                }
+                if (sample % REPORT_SAMPLES == 0 || tick == totalTicks) {
+                    System.out.printf(Locale.ROOT, "%7d %8d %9d %9d %8d %9d %9d %9.1f %6d %8d%n", sample, games,
+                            windowMax[0], windowMax[1], windowMax[2], windowMax[3], windowMax[4],
+                            heapUsed / 1048576.0, gcPauses.get(), pauseMax);
+                }
+                for (int i = 0; i < LISTS.length; i++) {
+                    runMax[i] = Math.max(runMax[i], windowMax[i]);
+                    windowMax[i] = 0;
+                }
+                if (sample == WARMUP_SAMPLES) {
+                    baselineHeap = liveHeap();
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (csv != null) {
+            csv.close();
+        }
+
+        // Con el motor sin reservas en regimen estable puede no haber ningun GC: se fuerza uno al
+        // final del calentamiento y otro al acabar para comparar solo lo que sigue vivo. Esas
+        // colecciones forzadas no cuentan como pausas (ver listenToGc)
+        long finalHeap = liveHeap();
+        long growth = baselineHeap < 0 ? 0 : finalHeap - baselineHeap;
+        if (failure == null && growth > heapGrowthLimit) {
+            failure = String.format(Locale.ROOT, "el heap vivo crecio %.1f MB (limite %d MB)", growth / 1048576.0,
+                    heapGrowthLimit >> 20);
+        }
+
+        System.out.printf(Locale.ROOT, "%d partidas en %.1f s (x%.0f tiempo real)%n", games, seconds,
+                engine.getTick() * GameEngine.TICK_MILLIS / 1000.0 / seconds);
+        StringBuilder maxima = new StringBuilder("  maximos:");
+        for (int i = 0; i < LISTS.length; i++) {
+            maxima.append(String.format(" %s=%d/%d", LISTS[i], runMax[i], limits[i]));
+        }
+        System.out.println(maxima);
+        synchronized (pauses) {
+            System.out.printf(Locale.ROOT, "  GC: %d pausas, %d ms en total, p99=%d ms max=%d ms%n", gcPauses.get(),
+                    gcPauseMillis.get(), pauses.percentile(99), pauses.getMax());
+        }
+        System.out.printf(Locale.ROOT, "  heap vivo: %.1f MB tras el calentamiento, %.1f MB al final%n",
+                Math.max(0, baselineHeap) / 1048576.0, finalHeap / 1048576.0);
+        System.out.println(failure == null ? "OK" : "FALLO: " + failure);
+        return failure == null;
+    }
+
+    private long liveHeap() {
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    // Las notificaciones llegan en un hilo de la JVM; los ciclos concurrentes no son pausas y las
+    // colecciones de System.gc() las provoca la propia prueba al medir el heap vivo.
+    private void listenToGc() {
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (!(gc instanceof NotificationEmitter)) {
+                continue;
+            }
+            ((NotificationEmitter) gc).addNotificationListener((notification, handback) -> {
+                if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                    return;
+                }
+                GarbageCollectionNotificationInfo info =
+                        GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                if (info.getGcName().contains("Concurrent") || "System.gc()".equals(info.getGcCause())) {
+                    return;
+                }
+                long millis = info.getGcInfo().getDuration();
+                gcPauses.incrementAndGet();
+                gcPauseMillis.addAndGet(millis);
+                windowMaxPauseMillis.accumulateAndGet(millis, Math::max);
+                synchronized (pauses) {
+                    pauses.record(millis);
+                }
+            }, null, null);
+        }
+    }
+}
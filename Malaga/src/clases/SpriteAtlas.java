@@ -0,0 +1,120 @@
+package clases;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Atlas de sprites ya escalados a su tamano de dibujo y en un formato compatible con la pantalla.
+// Todos los sprites comparten una unica imagen, de modo que dibujar es una copia sin escalado.
+public class SpriteAtlas {
+    private static final int ATLAS_WIDTH = 256;
+    private static final int PADDING = 1;
+
+    private final GraphicsConfiguration configuration;
+    private final List<Sprite> pending = new ArrayList<>();
+    private BufferedImage image;
+
+    public SpriteAtlas(GraphicsConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    // Devuelve la configuracion de la pantalla principal, o null si no hay pantalla (modo headless).
+    public static GraphicsConfiguration defaultConfiguration() {
+        if (GraphicsEnvironment.isHeadless()) {
+            return null;
+        }
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+    }
+
+    public Sprite add(BufferedImage source, int width, int height) {
+        if (image != null) {
+            throw new IllegalStateException("El atlas ya esta empaquetado");
+        }
+        Sprite sprite = new Sprite(source, width, height);
+        pending.add(sprite);
+        return sprite;
+    }
+
+    // Coloca los sprites por estantes (de mas alto a mas bajo) y los dibuja escalados una sola vez.
+    public void pack() {
+        List<Sprite> sorted = new ArrayList<>(pending);
+        sorted.sort(Comparator.comparingInt((Sprite s) -> s.height).reversed());
+
+        int x = 0, y = 0, shelfHeight = 0;
+        for (Sprite sprite : sorted) {
+            if (x + sprite.width > ATLAS_WIDTH) {
+                x = 0;
+                y += shelfHeight + PADDING;
+                shelfHeight = 0;
+            }
+            sprite.sx = x;
+            sprite.sy = y;
+            x += sprite.width + PADDING;
+            shelfHeight = Math.max(shelfHeight, sprite.height);
+        }
+        int atlasHeight = Math.max(1, y + shelfHeight);
+
+        image = createImage(ATLAS_WIDTH, atlasHeight);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setComposite(AlphaComposite.Src);
+            for (Sprite sprite : sorted) {
+                g.drawImage(sprite.source, sprite.sx, sprite.sy, sprite.width, sprite.height, null);
+                sprite.source = null;
+                sprite.atlas = image;
+            }
+        } finally {
+            g.dispose();
+        }
+        pending.clear();
+    }
+
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    private BufferedImage createImage(int width, int height) {
+        if (configuration != null) {
+            return configuration.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+    }
+
+    public static final class Sprite {
+        private final int width;
+        private final int height;
+        private BufferedImage source;
+        private BufferedImage atlas;
+        private int sx, sy;
+
+        private Sprite(BufferedImage source, int width, int height) {
+            this.source = source;
+            this.width = width;
+            this.height = height;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        // Copia sin escalado desde la region del atlas.
+        public void draw(Graphics g, int x, int y) {
+            g.drawImage(atlas, x, y, x + width, y + height, sx, sy, sx + width, sy + height, null);
+        }
+
+        // Solo para tamanos distintos del pre-escalado; el camino normal es draw(g, x, y).
+        public void draw(Graphics g, int x, int y, int w, int h) {
+            if (w == width && h == height) {
+                draw(g, x, y);
+            } else {
+                g.drawImage(atlas, x, y, x + w, y + h, sx, sy, sx + width, sy + height, null);
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package clases;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// Buffer binario reutilizable para guardar y restaurar el estado del motor (ver
+// GameEngine.saveState/loadState). Escribir y leer no reservan memoria salvo cuando el estado
+// crece por encima de lo que ya cabia, asi que se puede tomar un estado en cada tick.
+// Los valores se guardan en big-endian, igual que DataOutputStream.
+public class StateBuffer {
+    // Lee y escribe un int de una vez sobre el byte[], en vez de byte a byte
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    private byte[] data;
+    private int size;
+    private int position;
+
+    public StateBuffer() {
+        this(4096);
+    }
+
+    public StateBuffer(int initialCapacity) {
+        data = new byte[Math.max(16, initialCapacity)];
+    }
+
+    // Vacia el buffer para escribir un estado nuevo.
+    public void clear() {
+        size = 0;
+        position = 0;
+    }
+
+    // Vuelve al principio para leer el estado otra vez.
+    public void rewind() {
+        position = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void copyFrom(StateBuffer source) {
+        ensureCapacity(source.size);
+        System.arraycopy(source.data, 0, data, 0, source.size);
+        size = source.size;
+        position = 0;
+    }
+
+    public void putBoolean(boolean value) {
+        putByte(value ? 1 : 0);
+    }
+
+    public void putByte(int value) {
+        ensureCapacity(size + 1);
+        data[size++] = (byte) value;
+    }
+
+    public void putInt(int value) {
+        ensureCapacity(size + 4);
+        writeInt(size, value);
+        size += 4;
+    }
+
+    public void putLong(long value) {
+        putInt((int) (value >>> 32));
+        putInt((int) value);
+    }
+
+    public void putInts(int[] values, int count) {
+        ensureCapacity(size + 4 * count);
+        int at = size;
+        for (int i = 0; i < count; i++, at += 4) {
+            writeInt(at, values[i]);
+        }
+        size = at;
+    }
+
+    public void putBytes(byte[] values, int count) {
+        ensureCapacity(size + count);
+        System.arraycopy(values, 0, data, size, count);
+        size += count;
+    }
+
+    public boolean getBoolean() {
+        return getByte() != 0;
+    }
+
+    public byte getByte() {
+        check(1);
+        return data[position++];
+    }
+
+    public int getInt() {
+        check(4);
+        int value = readInt(position);
+        position += 4;
+        return value;
+    }
+
+    public long getLong() {
+        long high = getInt();
+        return high << 32 | (getInt() & 0xFFFFFFFFL);
+    }
+
+    public void getInts(int[] values, int count) {
+        check(4 * count);
+        int at = position;
+        for (int i = 0; i < count; i++, at += 4) {
+            values[i] = readInt(at);
+        }
+        position = at;
+    }
+
+    public void getBytes(byte[] values, int count) {
+        check(count);
+        System.arraycopy(data, position, values, 0, count);
+        position += count;
+    }
+
+    public void save(Path file) throws IOException {
+        Files.write(file, Arrays.copyOf(data, size));
+    }
+
+    public static StateBuffer load(Path file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        StateBuffer buffer = new StateBuffer(bytes.length);
+        System.arraycopy(bytes, 0, buffer.data, 0, bytes.length);
+        buffer.size = bytes.length;
+        return buffer;
+    }
+
+    private void writeInt(int at, int value) {
+        INT.set(data, at, value);
+    }
+
+    private int readInt(int at) {
+        return (int) INT.get(data, at);
+    }
+
+    private void check(int bytes) {
+        if (position + bytes > size) {
+            throw new IllegalStateException("Estado truncado: se piden " + bytes + " bytes en la posicion "
+                    + position + " de " + size);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > data.length) {
+            data = Arrays.copyOf(data, Math.max(capacity, data.length * 2));
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package clases;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+// Ejecuta un preset de oleadas sin ventana, a toda velocidad, con un jugador que dispara sin
+// parar y barre la pantalla, e informa del rendimiento y de cuantas entidades hubo vivas.
+// Uso: java clases.StressRunner [PRESET | estado.mlgs] [ticks]   (por defecto STRESS_10K y 3000 ticks)
+// Con un fichero de estado (ver Replayer --estado) se empieza desde ese punto de la partida.
+public class StressRunner {
+    public static void main(String[] args) throws IOException {
+        String source = args.length > 0 ? args[0] : WavePreset.STRESS_10K.name();
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 3000;
+
+        GameEngine engine = source.endsWith(".mlgs")
+                ? GameEngine.fromState(StateBuffer.load(Paths.get(source)))
+                : new GameEngine(42, WavePreset.valueOf(source.toUpperCase(Locale.ROOT)));
+        WavePreset preset = engine.getPreset();
+        FrameProfiler profiler = new FrameProfiler();
+        engine.setProfiler(profiler);
+        GameRandom random = new GameRandom(42);
+
+        long entitySum = 0;
+        int peakEnemies = 0;
+        int peakProjectiles = 0;
+        int peakCamicases = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ticks; i++) {
+            engine.step(Bot.SWEEP.input(engine, random));
+            int projectiles = engine.getProjectiles().size() + engine.getEnemyProjectiles().size();
+            int enemies = engine.getEnemies().size();
+            int camicases = engine.getCamicases().size();
+            entitySum += projectiles + enemies + camicases;
+            peakEnemies = Math.max(peakEnemies, enemies);
+            peakProjectiles = Math.max(peakProjectiles, projectiles);
+            peakCamicases = Math.max(peakCamicases, camicases);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        LatencyHistogram tick = profiler.getHistogram(FrameProfiler.TICK);
+        System.out.printf(Locale.ROOT, "%s: %d ticks en %.2f s = %.0f ticks/s (x%.2f tiempo real)%n", preset, ticks,
+                seconds, ticks / seconds, ticks * engine.getTickMillis() / 1000.0 / seconds);
+        System.out.printf(Locale.ROOT, "  tick p50=%.1f us p99=%.1f us max=%.1f us%n",
+                tick.percentile(50) / 1e3, tick.percentile(99) / 1e3, tick.getMax() / 1e3);
+        System.out.printf(Locale.ROOT, "  entidades: media=%.0f pico enemigos=%d proyectiles=%d camicases=%d%n",
+                entitySum / (double) ticks, peakEnemies, peakProjectiles, peakCamicases);
+        System.out.printf(Locale.ROOT, "  proyectiles enemigos: %s%n", engine.getEnemyProjectiles());
+    }
+}
@@ -0,0 +1,158 @@
+package clases;
+
+import java.util.Arrays;
+
+// Cola de prioridad de eventos indexada por tipo: cada tipo de evento tiene como mucho una
+// ocurrencia pendiente, de modo que reprogramar o cancelar es O(log n) y no reserva memoria.
+// El tiempo lo marca el contador de ticks de la simulacion, asi que es determinista y se
+// detiene en cuanto se deja de llamar a step().
+public class TickScheduler {
+    private final long[] due;
+    private final long[] order;
+    private final int[] heap;
+    private final int[] position;
+    private int size;
+    private long sequence;
+
+    public TickScheduler(int eventTypes) {
+        due = new long[eventTypes];
+        order = new long[eventTypes];
+        heap = new int[eventTypes];
+        position = new int[eventTypes];
+        Arrays.fill(position, -1);
+    }
+
+    // Programa el evento para el tick indicado, sustituyendo cualquier ocurrencia pendiente.
+    public void schedule(int type, long dueTick) {
+        due[type] = dueTick;
+        order[type] = sequence++;
+        int i = position[type];
+        if (i == -1) {
+            i = size++;
+            heap[i] = type;
+            position[type] = i;
+            siftUp(i);
+        } else {
+            siftUp(i);
+            siftDown(position[type]);
+        }
+    }
+
+    public void cancel(int type) {
+        int i = position[type];
+        if (i == -1) {
+            return;
+        }
+        int last = --size;
+        position[type] = -1;
+        if (i != last) {
+            heap[i] = heap[last];
+            position[heap[i]] = i;
+            siftUp(i);
+            siftDown(position[heap[i]]);
+        }
+    }
+
+    public boolean isPending(int type) {
+        return position[type] != -1;
+    }
+
+    public long dueTick(int type) {
+        return position[type] == -1 ? -1 : due[type];
+    }
+
+    // Saca el siguiente evento vencido en el tick actual, o devuelve -1 si no queda ninguno.
+    // Los eventos con el mismo tick salen en el orden en que se programaron.
+    public int poll(long tick) {
+        if (size == 0 || due[heap[0]] > tick) {
+            return -1;
+        }
+        int type = heap[0];
+        cancel(type);
+        return type;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    // Guarda los eventos pendientes con su tick y su orden de programacion, para que al leerlos
+    // salgan exactamente en el mismo orden.
+    public void writeTo(StateBuffer out) {
+        out.putLong(sequence);
+        out.putInt(size);
+        for (int i = 0; i < size; i++) {
+            int type = heap[i];
+            out.putInt(type);
+            out.putLong(due[type]);
+            out.putLong(order[type]);
+        }
+    }
+
+    public void readFrom(StateBuffer in) {
+        clear();
+        sequence = in.getLong();
+        int pending = in.getInt();
+        if (pending < 0 || pending > heap.length) {
+            throw new IllegalStateException("El estado tiene " + pending + " eventos y hay " + heap.length + " tipos");
+        }
+        for (int i = 0; i < pending; i++) {
+            int type = in.getInt();
+            if (type < 0 || type >= heap.length || position[type] != -1) {
+                throw new IllegalStateException("Evento corrupto en el estado: " + type);
+            }
+            due[type] = in.getLong();
+            order[type] = in.getLong();
+            heap[size] = type;
+            position[type] = size;
+            siftUp(size++);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private boolean before(int a, int b) {
+        return due[a] < due[b] || due[a] == due[b] && order[a] < order[b];
+    }
+
+    private void siftUp(int i) {
+        int type = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!before(type, heap[parent])) {
+                break;
+            }
+            heap[i] = heap[parent];
+            position[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = type;
+        position[type] = i;
+    }
+
+    private void siftDown(int i) {
+        int type = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && before(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!before(heap[child], type)) {
+                break;
+            }
+            heap[i] = heap[child];
+            position[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = type;
+        position[type] = i;
+    }
+}
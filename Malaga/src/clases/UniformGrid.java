@@ -0,0 +1,124 @@
+package clases;
+
+import java.util.Arrays;
+
+// Rejilla uniforme para la fase amplia de colisiones. Cada celda guarda una lista enlazada de
+// entradas en arrays primitivos, asi que reconstruirla cada tick no genera basura.
+public class UniformGrid {
+    private final int cellSize;
+    private final int cols;
+    private final int rows;
+    private final int[] cellHead;
+
+    private int[] entryNext;
+    private int[] entryId;
+    private int entryCount;
+
+    private int[] boundsX, boundsY, boundsW, boundsH;
+    private boolean[] alive;
+
+    public UniformGrid(int width, int height, int cellSize) {
+        this.cellSize = cellSize;
+        this.cols = (width + cellSize - 1) / cellSize;
+        this.rows = (height + cellSize - 1) / cellSize;
+        this.cellHead = new int[cols * rows];
+        this.entryNext = new int[64];
+        this.entryId = new int[64];
+        this.boundsX = new int[64];
+        this.boundsY = new int[64];
+        this.boundsW = new int[64];
+        this.boundsH = new int[64];
+        this.alive = new boolean[64];
+        clear();
+    }
+
+    public void clear() {
+        Arrays.fill(cellHead, -1);
+        entryCount = 0;
+    }
+
+    // Inserta la entidad id (0 <= id) en todas las celdas que toca su rectangulo.
+    public void insert(int id, int x, int y, int w, int h) {
+        ensureIdCapacity(id + 1);
+        boundsX[id] = x;
+        boundsY[id] = y;
+        boundsW[id] = w;
+        boundsH[id] = h;
+        alive[id] = true;
+
+        int c0 = cellX(x), c1 = cellX(x + w - 1);
+        int r0 = cellY(y), r1 = cellY(y + h - 1);
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                if (entryCount == entryNext.length) {
+                    entryNext = Arrays.copyOf(entryNext, entryCount * 2);
+                    entryId = Arrays.copyOf(entryId, entryCount * 2);
+                }
+                int cell = r * cols + c;
+                entryId[entryCount] = id;
+                entryNext[entryCount] = cellHead[cell];
+                cellHead[cell] = entryCount++;
+            }
+        }
+    }
+
+    // Las entradas eliminadas se ignoran en las consultas hasta el siguiente clear().
+    public void remove(int id) {
+        alive[id] = false;
+    }
+
+    // Devuelve un id vivo cuyo rectangulo se solapa con el dado, o -1 si no hay ninguno.
+    // Si los ids se insertan en orden descendente cada celda queda ordenada de menor a mayor,
+    // la busqueda corta en el primer acierto de cada celda y el resultado es el menor id.
+    public int firstOverlap(int x, int y, int w, int h) {
+        return nextOverlap(x, y, w, h, -1);
+    }
+
+    // Como firstOverlap pero solo con ids mayores que after, para seguir buscando si la fase fina
+    // descarta el candidato anterior.
+    public int nextOverlap(int x, int y, int w, int h, int after) {
+        int best = -1;
+        int c0 = cellX(x), c1 = cellX(x + w - 1);
+        int r0 = cellY(y), r1 = cellY(y + h - 1);
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                for (int e = cellHead[r * cols + c]; e != -1; e = entryNext[e]) {
+                    int id = entryId[e];
+                    if (best != -1 && id >= best) {
+                        break;
+                    }
+                    if (id > after && alive[id]
+                            && x < boundsX[id] + boundsW[id] && boundsX[id] < x + w
+                            && y < boundsY[id] + boundsH[id] && boundsY[id] < y + h) {
+                        best = id;
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    private int cellX(int x) {
+        return Math.max(0, Math.min(cols - 1, Math.floorDiv(x, cellSize)));
+    }
+
+    private int cellY(int y) {
+        return Math.max(0, Math.min(rows - 1, Math.floorDiv(y, cellSize)));
+    }
+
+    private void ensureIdCapacity(int capacity) {
+        if (capacity > alive.length) {
+            int newLength = Math.max(capacity, alive.length * 2);
+            boundsX = Arrays.copyOf(boundsX, newLength);
+            boundsY = Arrays.copyOf(boundsY, newLength);
+            boundsW = Arrays.copyOf(boundsW, newLength);
+            boundsH = Arrays.copyOf(boundsH, newLength);
+            alive = Arrays.copyOf(alive, newLength);
+        }
+    }
+}
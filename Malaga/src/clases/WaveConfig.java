@@ -0,0 +1,84 @@
+package clases;
+
+// Parametros de una oleada: tamano y separacion de la formacion, vida de los enemigos, ritmo de
+// disparo y aparicion de camicases. Los metodos with* devuelven la propia configuracion para
+// poder encadenarlos al definir los presets.
+public class WaveConfig {
+    int rows;
+    int cols;
+    int spacingX = GameEngine.ENEMY_SIZE + 10;
+    int spacingY = GameEngine.ENEMY_SIZE + 10;
+    int originX = 10;
+    int originY = 40;
+    int enemyHp = GameEngine.ENEMY_HITS;
+
+    // Probabilidad (%) de que dispare cada columna en una andanada; 0 = no disparan
+    int shootProbability;
+    int shootInterval = GameEngine.ENEMY_SHOOT_INTERVAL;
+
+    // Tope de camicases vivos; 0 = no aparecen
+    int camicaseCap;
+    int camicasesPerSpawn = 1;
+    int camicaseSpawnInterval = GameEngine.CAMICASE_SPAWN_INTERVAL;
+    boolean camicaseLasers;
+
+    boolean boss;
+
+    public static WaveConfig grid(int rows, int cols) {
+        if (rows <= 0 || cols <= 0 || (long) rows * cols > GameEngine.ENEMY_CAPACITY) {
+            throw new IllegalArgumentException("Formacion de " + rows + "x" + cols + " fuera de [1, "
+                    + GameEngine.ENEMY_CAPACITY + "] enemigos");
+        }
+        WaveConfig wave = new WaveConfig();
+        wave.rows = rows;
+        wave.cols = cols;
+        return wave;
+    }
+
+    public static WaveConfig bossWave() {
+        WaveConfig wave = new WaveConfig();
+        wave.boss = true;
+        return wave;
+    }
+
+    public WaveConfig withSpacing(int spacingX, int spacingY) {
+        this.spacingX = spacingX;
+        this.spacingY = spacingY;
+        return this;
+    }
+
+    public WaveConfig withOrigin(int originX, int originY) {
+        this.originX = originX;
+        this.originY = originY;
+        return this;
+    }
+
+    public WaveConfig withEnemyHp(int enemyHp) {
+        this.enemyHp = enemyHp;
+        return this;
+    }
+
+    public WaveConfig withVolleys(int shootProbability, int shootInterval) {
+        if (shootProbability < 0 || shootProbability > 100) {
+            throw new IllegalArgumentException("Probabilidad de disparo fuera de [0, 100]: " + shootProbability);
+        }
+        this.shootProbability = shootProbability;
+        this.shootInterval = shootInterval;
+        return this;
+    }
+
+    public WaveConfig withCamicases(int cap, int perSpawn, int spawnInterval, boolean lasers) {
+        if (cap < 0 || cap > GameEngine.CAMICASE_CAPACITY) {
+            throw new IllegalArgumentException("Tope de camicases fuera de [0, " + GameEngine.CAMICASE_CAPACITY + "]: " + cap);
+        }
+        this.camicaseCap = cap;
+        this.camicasesPerSpawn = perSpawn;
+        this.camicaseSpawnInterval = spawnInterval;
+        this.camicaseLasers = lasers;
+        return this;
+    }
+
+    public int getEnemyCount() {
+        return rows * cols;
+    }
+}
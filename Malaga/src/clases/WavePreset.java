@@ -0,0 +1,73 @@
+package clases;
+
+// Secuencias de oleadas. CAMPAIGN es el juego normal (cinco niveles con el jefe al final); los
+// presets de estres repiten una oleada enorme y hacen al jugador invulnerable para que la carga
+// no se corte con el game over.
+public enum WavePreset {
+    CAMPAIGN(GameEngine.ENEMY_PROJECTILE_CAPACITY, false,
+            WaveConfig.grid(3, 6),
+            WaveConfig.grid(4, 5).withVolleys(GameEngine.ENEMY_SHOOT_PROBABILITY, GameEngine.ENEMY_SHOOT_INTERVAL),
+            WaveConfig.grid(4, 6).withVolleys(GameEngine.ENEMY_SHOOT_PROBABILITY, GameEngine.ENEMY_SHOOT_INTERVAL)
+                    .withCamicases(5, 1, GameEngine.CAMICASE_SPAWN_INTERVAL, false),
+            WaveConfig.grid(4, 6).withVolleys(GameEngine.ENEMY_SHOOT_PROBABILITY, GameEngine.ENEMY_SHOOT_INTERVAL)
+                    .withCamicases(5, 1, GameEngine.CAMICASE_SPAWN_INTERVAL, true),
+            WaveConfig.bossWave()),
+
+    // 1.000 enemigos que disparan a menudo y un goteo de camicases con laser
+    STRESS_1K(16_384, true,
+            WaveConfig.grid(20, 50).withSpacing(8, 12).withVolleys(30, 100).withCamicases(40, 1, 50, true)),
+
+    // 10.000 enemigos en una formacion de 100x100 solapada
+    STRESS_10K(16_384, true,
+            WaveConfig.grid(100, 100).withSpacing(4, 4).withVolleys(50, 100).withCamicases(40, 1, 50, true)),
+
+    // 10.000 enemigos y ~700 camicases disparando laseres cada tick: unos 50.000 proyectiles vivos
+    STRESS_50K(65_536, true,
+            WaveConfig.grid(100, 100).withSpacing(4, 4).withVolleys(50, 100)
+                    .withCamicases(720, 8, GameEngine.TICK_MILLIS, true));
+
+    private final int enemyProjectileCapacity;
+    private final boolean playerInvulnerable;
+    private final WaveConfig[] waves;
+
+    WavePreset(int enemyProjectileCapacity, boolean playerInvulnerable, WaveConfig... waves) {
+        this.enemyProjectileCapacity = enemyProjectileCapacity;
+        this.playerInvulnerable = playerInvulnerable;
+        this.waves = waves;
+    }
+
+    // Pasado el ultimo nivel definido se repite la ultima oleada.
+    public WaveConfig wave(int level) {
+        return waves[Math.min(level, waves.length) - 1];
+    }
+
+    // Lo mas que puede tener viva a la vez cualquiera de sus oleadas; SoakRunner lo usa de limite.
+    public int getMaxEnemies() {
+        int max = 0;
+        for (WaveConfig wave : waves) {
+            max = Math.max(max, wave.getEnemyCount());
+        }
+        return max;
+    }
+
+    public int getMaxCamicases() {
+        int max = 0;
+        for (WaveConfig wave : waves) {
+            max = Math.max(max, wave.camicaseCap);
+        }
+        return max;
+    }
+
+    public int getEnemyProjectileCapacity() {
+        return enemyProjectileCapacity;
+    }
+
+    public boolean isPlayerInvulnerable() {
+        return playerInvulnerable;
+    }
+
+    // Preset elegido con -Dmalaga.preset=NOMBRE (por defecto la campana).
+    public static WavePreset fromSystemProperty() {
+        return valueOf(System.getProperty("malaga.preset", CAMPAIGN.name()).toUpperCase(java.util.Locale.ROOT));
+    }
+}